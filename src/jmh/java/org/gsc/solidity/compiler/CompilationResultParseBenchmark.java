@@ -0,0 +1,94 @@
+package org.gsc.solidity.compiler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compares the historical per-call ObjectMapper parse with the shared reader and the streaming parser.
+ * Runs on synthetic output by default; pass {@code -p recordedOutput=/path/to/output.json} to
+ * parse output recorded from a real solc run instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CompilationResultParseBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int contracts;
+
+    @Param({""})
+    public String recordedOutput;
+
+    private String json;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        jsonBytes = recordedOutput.isEmpty()
+                ? combinedJson(contracts).getBytes(UTF_8)
+                : Files.readAllBytes(Paths.get(recordedOutput));
+        json = new String(jsonBytes, UTF_8);
+    }
+
+    @Benchmark
+    public CompilationResult newMapperPerCall() throws IOException {
+        return new ObjectMapper().readValue(json, CompilationResult.class);
+    }
+
+    @Benchmark
+    public CompilationResult sharedReaderString() throws IOException {
+        return CompilationResult.parse(json);
+    }
+
+    @Benchmark
+    public CompilationResult sharedReaderBytes() throws IOException {
+        return CompilationResult.parse(jsonBytes);
+    }
+
+    @Benchmark
+    public CompilationResult streaming() throws IOException {
+        return CompilationResult.parse(new ByteArrayInputStream(jsonBytes));
+    }
+
+    /**
+     * @return combined-json output shaped like solc 0.4.25 {@code --combined-json abi,bin,interface,metadata}
+     */
+    static String combinedJson(int contracts) {
+        String abi = "[{\\\"constant\\\":true,\\\"inputs\\\":[],\\\"name\\\":\\\"name\\\",\\\"outputs\\\":"
+                + "[{\\\"name\\\":\\\"\\\",\\\"type\\\":\\\"string\\\"}],\\\"payable\\\":false,"
+                + "\\\"stateMutability\\\":\\\"view\\\",\\\"type\\\":\\\"function\\\"}]";
+        StringBuilder bin = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            bin.append("608060405234801561001057600080fd5b50");
+        }
+        String metadata = "{\\\"compiler\\\":{\\\"version\\\":\\\"0.4.25+commit.59dbf8f1\\\"},\\\"language\\\":\\\"Solidity\\\"}";
+
+        StringBuilder json = new StringBuilder("{\"contracts\":{");
+        for (int i = 0; i < contracts; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"<stdin>:Contract").append(i).append("\":{")
+                    .append("\"abi\":\"").append(abi).append("\",")
+                    .append("\"bin\":\"").append(bin).append("\",")
+                    .append("\"interface\":\"").append(abi).append("\",")
+                    .append("\"metadata\":\"").append(metadata).append("\"}");
+        }
+        return json.append("},\"version\":\"0.4.25+commit.59dbf8f1.Linux.g++\"}").toString();
+    }
+}
@@ -0,0 +1,53 @@
+package org.gsc.solidity.compiler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.gsc.solidity.compiler.SolidityCompiler.Options.*;
+
+/**
+ * End to end compilation against {@code stub-solc.sh}: spawn, stdin, drain and parse, without
+ * solc's own compile time. Runs with and without the warm process pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompileSrcBenchmark {
+
+    @Param({"0", "2"})
+    public int poolSize;
+
+    @Param({"1", "10"})
+    public int contracts;
+
+    private SolidityCompiler compiler;
+    private byte[] source;
+
+    @Setup
+    public void setUp() throws IOException {
+        compiler = StubSolc.compiler(CompilationResultParseBenchmark.combinedJson(contracts),
+                "solc.pool.size", String.valueOf(poolSize));
+        source = SourcesFlattenBenchmark.graph("chain", 10).get(9).getSource().getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public CompilationResult compileSrcAndParse() throws IOException {
+        SolidityCompiler.Result result = compiler.compileSrc(source, false, true, ABI, BIN, INTERFACE, METADATA);
+        return CompilationResult.parse(result.output);
+    }
+
+    @Benchmark
+    public CompilationResult compileSrcToResult() throws IOException {
+        return compiler.compileSrcToResult(source, false, ABI, BIN, INTERFACE, METADATA);
+    }
+}
@@ -0,0 +1,52 @@
+package org.gsc.solidity.compiler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.gsc.solidity.compiler.SolidityCompiler.Options.*;
+
+/**
+ * Command line assembly done before every solc invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PrepareCommandOptionsBenchmark {
+
+    @Param({"true", "false"})
+    public boolean combinedJson;
+
+    private SolidityCompiler compiler;
+    private SolidityCompiler.Option[] few;
+    private SolidityCompiler.Option[] many;
+
+    @Setup
+    public void setUp() throws IOException {
+        compiler = StubSolc.compiler("{}");
+        few = new SolidityCompiler.Option[]{ABI, BIN};
+        many = new SolidityCompiler.Option[]{METADATA, BIN, ABI, INTERFACE, ABI, AST, ASTJSON,
+                new AllowPaths(Arrays.asList("/tmp/a", "/tmp/b")),
+                new SolidityCompiler.CustomOption("evm-version", "byzantium")};
+    }
+
+    @Benchmark
+    public List<String> fewOptions() throws IOException {
+        return compiler.prepareCommandOptions(false, combinedJson, few);
+    }
+
+    @Benchmark
+    public List<String> manyOptions() throws IOException {
+        return compiler.prepareCommandOptions(true, combinedJson, many);
+    }
+}
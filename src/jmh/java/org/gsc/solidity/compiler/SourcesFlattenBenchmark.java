@@ -0,0 +1,111 @@
+package org.gsc.solidity.compiler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import resolution and flattening on synthetic import graphs.
+ * <ul>
+ *     <li>chain: every source imports the previous one</li>
+ *     <li>layered: every source imports both sources of the layer below, so paths to the bottom grow exponentially</li>
+ *     <li>star: one root importing all other, independent sources</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SourcesFlattenBenchmark {
+
+    @Param({"chain", "layered", "star"})
+    public String shape;
+
+    @Param({"10", "100"})
+    public int size;
+
+    private List<SourceArtifact> artifacts;
+    private List<SourceArtifact> roots;
+
+    @Setup
+    public void setUp() {
+        artifacts = graph(shape, size);
+        Sources sources = new Sources(artifacts);
+        sources.resolveDependencies();
+        roots = sources.getTargetArtifacts();
+    }
+
+    @Benchmark
+    public String flatten() {
+        return SourceArtifact.flatten(roots);
+    }
+
+    @Benchmark
+    public String resolveAndFlatten() {
+        List<SourceArtifact> fresh = new ArrayList<>();
+        for (SourceArtifact artifact : artifacts) {
+            fresh.add(new SourceArtifact(artifact.getName(), artifact.getSource()));
+        }
+        Sources sources = new Sources(fresh);
+        sources.resolveDependencies();
+        return sources.plainSource();
+    }
+
+    static List<SourceArtifact> graph(String shape, int size) {
+        List<SourceArtifact> artifacts = new ArrayList<>();
+        switch (shape) {
+            case "chain":
+                artifacts.add(artifact("s0.sol"));
+                for (int i = 1; i < size; i++) {
+                    artifacts.add(artifact("s" + i + ".sol", "s" + (i - 1) + ".sol"));
+                }
+                break;
+            case "layered":
+                artifacts.add(artifact("s0a.sol"));
+                artifacts.add(artifact("s0b.sol"));
+                for (int i = 1; i < size / 2; i++) {
+                    String a = "s" + (i - 1) + "a.sol";
+                    String b = "s" + (i - 1) + "b.sol";
+                    artifacts.add(artifact("s" + i + "a.sol", a, b));
+                    artifacts.add(artifact("s" + i + "b.sol", a, b));
+                }
+                String a = "s" + (size / 2 - 1) + "a.sol";
+                String b = "s" + (size / 2 - 1) + "b.sol";
+                artifacts.add(artifact("root.sol", a, b));
+                break;
+            case "star":
+                String[] leaves = new String[size - 1];
+                for (int i = 0; i < leaves.length; i++) {
+                    leaves[i] = "s" + i + ".sol";
+                    artifacts.add(artifact(leaves[i]));
+                }
+                artifacts.add(artifact("root.sol", leaves));
+                break;
+            default:
+                throw new IllegalArgumentException(shape);
+        }
+        return artifacts;
+    }
+
+    private static SourceArtifact artifact(String name, String... imports) {
+        StringBuilder source = new StringBuilder("pragma solidity ^0.4.24;\n");
+        for (String dependency : imports) {
+            source.append("import \"").append(dependency).append("\";\n");
+        }
+        String contract = name.substring(0, name.indexOf('.'));
+        source.append("\ncontract C_").append(contract).append(" {\n");
+        for (int i = 0; i < 20; i++) {
+            source.append("    function f").append(i).append("(uint a) public pure returns (uint) { return a * ")
+                    .append(i).append("; }\n");
+        }
+        return new SourceArtifact(name, source.append("}\n").toString());
+    }
+}
@@ -0,0 +1,43 @@
+package org.gsc.solidity.compiler;
+
+import org.gsc.config.SystemProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compilers driving the {@code stub-solc.sh} script, which replays a fixed output instead of compiling.
+ */
+class StubSolc {
+
+    /**
+     * @param output what the stub prints for every compilation
+     * @param keyValuePairs further config overrides, e.g. {@code "solc.pool.size", "2"}
+     */
+    static SolidityCompiler compiler(String output, String... keyValuePairs) throws IOException {
+        Path dir = Files.createTempDirectory("stub-solc");
+        dir.toFile().deleteOnExit();
+        Path script = dir.resolve("solc");
+        try (InputStream in = StubSolc.class.getResourceAsStream("/stub-solc.sh")) {
+            Files.copy(in, script, StandardCopyOption.REPLACE_EXISTING);
+        }
+        script.toFile().setExecutable(true);
+        script.toFile().deleteOnExit();
+        File outputFile = dir.resolve("output.json").toFile();
+        Files.write(outputFile.toPath(), output.getBytes(UTF_8));
+        outputFile.deleteOnExit();
+
+        SystemProperties config = new SystemProperties();
+        config.overrideParams("solc.path", script.toString());
+        if (keyValuePairs.length > 0) {
+            config.overrideParams(keyValuePairs);
+        }
+        return new SolidityCompiler(config);
+    }
+}
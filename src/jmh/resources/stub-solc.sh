@@ -0,0 +1,12 @@
+#!/bin/sh
+# Stand-in for solc: consumes the source from stdin and replays the recorded output.json next to it,
+# so benchmarks measure the library's process handling and parsing rather than the compiler.
+case " $* " in
+    *" --version "*)
+        echo "solc, the solidity compiler commandline interface"
+        echo "Version: 0.4.25+commit.59dbf8f1.Linux.g++"
+        exit 0
+        ;;
+esac
+cat > /dev/null
+cat "$(dirname "$0")/output.json"
@@ -0,0 +1,170 @@
+package org.gsc.client;
+
+import org.gsc.api.GrpcAPI.BlockList;
+import org.gsc.protos.Protocol.Block;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Fetches long block ranges as many {@code getBlockByLimitNext} calls of {@code chunkSize} blocks,
+ * keeping up to {@code maxInFlight} of them running at once, and hands the blocks out in order.
+ * <p>
+ * Chunks are requested only as the consumer catches up: requested plus fetched but not yet
+ * consumed chunks never exceed {@code maxInFlight}, so a slow consumer holds back the node rather
+ * than piling up blocks in memory.
+ */
+public class BlockRangeFetcher {
+
+  private final WalletGrpcClient client;
+  private final int chunkSize;
+  private final int maxInFlight;
+
+  public BlockRangeFetcher(WalletGrpcClient client) {
+    this(client, 100, 8);
+  }
+
+  /**
+   * @param chunkSize blocks per request, bounded by the node's own limit per call
+   * @param maxInFlight chunks requested or buffered at any time
+   */
+  public BlockRangeFetcher(WalletGrpcClient client, int chunkSize, int maxInFlight) {
+    if (chunkSize <= 0 || maxInFlight <= 0) {
+      throw new IllegalArgumentException("chunkSize and maxInFlight must be positive");
+    }
+    this.client = client;
+    this.chunkSize = chunkSize;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Starts fetching blocks {@code startNum} (inclusive) to {@code endNum} (exclusive). Blocks the
+   * node doesn't have yet are missing from the result. The iterator throws the failure of a
+   * request once it gets to that request's blocks; close it to cancel the requests still running.
+   */
+  public BlockIterator fetch(long startNum, long endNum) {
+    return new BlockIterator(startNum, Math.max(startNum, endNum));
+  }
+
+  /**
+   * Same as {@link #fetch(long, long)} as a sequential stream; closing the stream cancels the fetch.
+   */
+  public Stream<Block> stream(long startNum, long endNum) {
+    BlockIterator blocks = fetch(startNum, endNum);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(blocks,
+        Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(blocks::close);
+  }
+
+  public class BlockIterator implements Iterator<Block>, AutoCloseable {
+
+    private final long startNum;
+    private final long endNum;
+    private final long chunks;
+
+    private final Map<Long, CompletableFuture<BlockList>> inFlight = new HashMap<>();
+    private final Map<Long, List<Block>> fetched = new HashMap<>();
+    private long nextToRequest;
+    private long nextToDeliver;
+    private Throwable failure;
+    private long failedChunk;
+    private boolean closed;
+
+    private Iterator<Block> current = Collections.emptyIterator();
+
+    private BlockIterator(long startNum, long endNum) {
+      this.startNum = startNum;
+      this.endNum = endNum;
+      this.chunks = (endNum - startNum + chunkSize - 1) / chunkSize;
+      synchronized (this) {
+        requestMore();
+      }
+    }
+
+    // the window of chunks requested or buffered slides as the consumer takes chunks
+    private void requestMore() {
+      while (!closed && failure == null && nextToRequest < chunks && nextToRequest - nextToDeliver < maxInFlight) {
+        long chunk = nextToRequest++;
+        long from = startNum + chunk * chunkSize;
+        CompletableFuture<BlockList> call = client.getBlockByLimitNextAsync(from, Math.min(from + chunkSize, endNum));
+        inFlight.put(chunk, call);
+        call.whenComplete((blocks, e) -> completed(chunk, blocks, e));
+      }
+    }
+
+    private synchronized void completed(long chunk, BlockList blocks, Throwable e) {
+      if (inFlight.remove(chunk) == null) {
+        // cancelled by close()
+        return;
+      }
+      if (e != null) {
+        if (failure == null || chunk < failedChunk) {
+          failure = e;
+          failedChunk = chunk;
+        }
+      } else {
+        fetched.put(chunk, blocks.getBlockList());
+      }
+      notifyAll();
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+      while (!current.hasNext()) {
+        if (closed || nextToDeliver == chunks) {
+          return false;
+        }
+        while (!fetched.containsKey(nextToDeliver) && !(failure != null && failedChunk == nextToDeliver)) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for blocks", e);
+          }
+        }
+        List<Block> blocks = fetched.remove(nextToDeliver);
+        if (blocks == null) {
+          throw failure instanceof RuntimeException ? (RuntimeException) failure : new RuntimeException(failure);
+        }
+        current = blocks.iterator();
+        nextToDeliver++;
+        requestMore();
+      }
+      return true;
+    }
+
+    @Override
+    public synchronized Block next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+
+    /**
+     * Cancels the requests still running and drops fetched blocks.
+     */
+    @Override
+    public synchronized void close() {
+      closed = true;
+      // cancelling completes the futures synchronously, so take them out of the map first
+      List<CompletableFuture<BlockList>> calls = new ArrayList<>(inFlight.values());
+      inFlight.clear();
+      for (CompletableFuture<BlockList> call : calls) {
+        call.cancel(true);
+      }
+      fetched.clear();
+      current = Collections.emptyIterator();
+      notifyAll();
+    }
+  }
+}
@@ -0,0 +1,354 @@
+package org.gsc.client;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ForwardingClientCall;
+import io.grpc.ForwardingClientCallListener;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import lombok.extern.slf4j.Slf4j;
+import org.gsc.api.GrpcAPI.EmptyMessage;
+import org.gsc.api.WalletGrpc;
+import org.gsc.protos.Protocol.Block;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Channel spreading calls over several channels to each of several nodes. Pass it to
+ * {@link WalletGrpcClient#WalletGrpcClient(ManagedChannel)} to get a client that isn't capped by a
+ * single HTTP/2 connection and survives a node going down.
+ * <p>
+ * Every call picks one channel of a healthy node, by {@link Balancing}. Nodes are ejected when a
+ * {@code getNowBlock} probe fails or their head lags more than {@code maxBlockLag} behind the best
+ * node, and readmitted once a probe succeeds again. Calls failing with {@code UNAVAILABLE} eject
+ * their node right away instead of waiting for the next probe. Without health checks running
+ * there is no probe to readmit such a node, so it takes calls again once the readmit backoff has
+ * passed. With every node ejected calls go to all of them, so a blip doesn't fail calls a node
+ * could still have served.
+ */
+@Slf4j
+public class NodeChannelPool extends ManagedChannel {
+
+  public enum Balancing {
+    ROUND_ROBIN, LEAST_OUTSTANDING
+  }
+
+  private static final long PROBE_TIMEOUT_MILLIS = 3000;
+  private static final long DEFAULT_READMIT_BACKOFF_MILLIS = 5000;
+
+  private final List<Node> nodes = new ArrayList<>();
+  private final Balancing balancing;
+  private final AtomicLong next = new AtomicLong();
+  private volatile long maxBlockLag = Long.MAX_VALUE;
+  private volatile long readmitBackoffNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_READMIT_BACKOFF_MILLIS);
+  private volatile ScheduledExecutorService healthChecker;
+
+  /**
+   * Pool of two plaintext channels per target, balanced round robin. Health checks aren't running
+   * until {@link #startHealthChecks(long, TimeUnit)}, until then nodes ejected by a failed call are
+   * readmitted after the readmit backoff.
+   */
+  public NodeChannelPool(List<String> targets) {
+    this(targets, 2, Balancing.ROUND_ROBIN,
+        target -> ManagedChannelBuilder.forTarget(target).usePlaintext(true).build());
+  }
+
+  /**
+   * @param channelFactory creates each channel to a target, e.g. an in-process one in tests
+   */
+  public NodeChannelPool(List<String> targets, int channelsPerNode, Balancing balancing,
+      Function<String, ManagedChannel> channelFactory) {
+    if (targets.isEmpty() || channelsPerNode <= 0) {
+      throw new IllegalArgumentException("Need at least one target and one channel per node");
+    }
+    this.balancing = balancing;
+    for (String target : targets) {
+      ManagedChannel[] channels = new ManagedChannel[channelsPerNode];
+      for (int i = 0; i < channelsPerNode; i++) {
+        channels[i] = channelFactory.apply(target);
+      }
+      nodes.add(new Node(target, channels));
+    }
+  }
+
+  /**
+   * Ejects nodes whose head is more than {@code maxBlockLag} blocks behind the best probed node.
+   */
+  public NodeChannelPool setMaxBlockLag(long maxBlockLag) {
+    this.maxBlockLag = maxBlockLag;
+    return this;
+  }
+
+  /**
+   * Lets a node ejected while no health checks are running take calls again after
+   * {@code backoff}, 5 seconds by default. Another failed call ejects it for the next backoff.
+   */
+  public NodeChannelPool setReadmitBackoff(long backoff, TimeUnit unit) {
+    this.readmitBackoffNanos = unit.toNanos(backoff);
+    return this;
+  }
+
+  /**
+   * Probes every node each {@code period} on a daemon thread; from then on only probes readmit
+   * ejected nodes.
+   */
+  public synchronized NodeChannelPool startHealthChecks(long period, TimeUnit unit) {
+    if (healthChecker == null) {
+      healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "node-health-check");
+        t.setDaemon(true);
+        return t;
+      });
+      healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, period, unit);
+    }
+    return this;
+  }
+
+  /**
+   * Probes all nodes once with {@code getNowBlock} and updates which of them take calls.
+   */
+  public void checkHealth() {
+    List<Future<Block>> probes = new ArrayList<>();
+    for (Node node : nodes) {
+      probes.add(WalletGrpc.newFutureStub(node.channels[0])
+          .withDeadlineAfter(PROBE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+          .getNowBlock(EmptyMessage.getDefaultInstance()));
+    }
+    long[] heads = new long[nodes.size()];
+    long best = -1;
+    for (int i = 0; i < heads.length; i++) {
+      try {
+        heads[i] = probes.get(i).get().getBlockHeader().getRawData().getNumber();
+        best = Math.max(best, heads[i]);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        heads[i] = -1;
+        nodes.get(i).setHealthy(false, "probe failed: " + e.getMessage());
+      }
+    }
+    for (int i = 0; i < heads.length; i++) {
+      if (heads[i] < 0) {
+        continue;
+      }
+      Node node = nodes.get(i);
+      if (best - heads[i] > maxBlockLag) {
+        node.setHealthy(false, "head " + heads[i] + " lags behind " + best);
+      } else {
+        node.setHealthy(true, "probe succeeded");
+      }
+    }
+  }
+
+  /**
+   * @return targets currently taking calls
+   */
+  public List<String> getHealthyTargets() {
+    List<String> healthy = new ArrayList<>();
+    for (Node node : nodes) {
+      if (node.healthy) {
+        healthy.add(node.target);
+      }
+    }
+    return Collections.unmodifiableList(healthy);
+  }
+
+  /**
+   * @return calls started but not closed yet, over all channels of all nodes
+   */
+  public int getOutstanding() {
+    int outstanding = 0;
+    for (Node node : nodes) {
+      for (AtomicInteger count : node.outstanding) {
+        outstanding += count.get();
+      }
+    }
+    return outstanding;
+  }
+
+  @Override
+  public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(
+      MethodDescriptor<ReqT, RespT> method, CallOptions callOptions) {
+    List<Node> candidates = new ArrayList<>(nodes.size());
+    boolean probing = healthChecker != null;
+    for (Node node : nodes) {
+      if (!node.healthy && !probing
+          && System.nanoTime() - node.ejectedAt >= readmitBackoffNanos) {
+        node.setHealthy(true, "readmit backoff elapsed");
+      }
+      if (node.healthy) {
+        candidates.add(node);
+      }
+    }
+    if (candidates.isEmpty()) {
+      candidates = nodes;
+    }
+    long ticket = next.getAndIncrement();
+    Node node;
+    int channel;
+    if (balancing == Balancing.ROUND_ROBIN) {
+      node = candidates.get((int) (ticket % candidates.size()));
+      channel = (int) (ticket / candidates.size() % node.channels.length);
+    } else {
+      // scan from a rotating offset so ties don't all land on the first channel
+      node = null;
+      channel = 0;
+      int least = Integer.MAX_VALUE;
+      int size = candidates.size() * candidates.get(0).channels.length;
+      for (int i = 0; i < size; i++) {
+        int slot = (int) ((ticket + i) % size);
+        Node n = candidates.get(slot % candidates.size());
+        int c = slot / candidates.size();
+        int outstanding = n.outstanding[c].get();
+        if (outstanding < least) {
+          least = outstanding;
+          node = n;
+          channel = c;
+        }
+      }
+    }
+    return new CountingCall<>(node, channel, node.channels[channel].newCall(method, callOptions));
+  }
+
+  @Override
+  public String authority() {
+    return nodes.get(0).channels[0].authority();
+  }
+
+  @Override
+  public synchronized NodeChannelPool shutdown() {
+    if (healthChecker != null) {
+      healthChecker.shutdownNow();
+    }
+    for (Node node : nodes) {
+      for (ManagedChannel channel : node.channels) {
+        channel.shutdown();
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized NodeChannelPool shutdownNow() {
+    if (healthChecker != null) {
+      healthChecker.shutdownNow();
+    }
+    for (Node node : nodes) {
+      for (ManagedChannel channel : node.channels) {
+        channel.shutdownNow();
+      }
+    }
+    return this;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    for (Node node : nodes) {
+      for (ManagedChannel channel : node.channels) {
+        if (!channel.isShutdown()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    for (Node node : nodes) {
+      for (ManagedChannel channel : node.channels) {
+        if (!channel.isTerminated()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    for (Node node : nodes) {
+      for (ManagedChannel channel : node.channels) {
+        if (!channel.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static class Node {
+
+    private final String target;
+    private final ManagedChannel[] channels;
+    private final AtomicInteger[] outstanding;
+    private volatile boolean healthy = true;
+    private volatile long ejectedAt;
+
+    private Node(String target, ManagedChannel[] channels) {
+      this.target = target;
+      this.channels = channels;
+      this.outstanding = new AtomicInteger[channels.length];
+      for (int i = 0; i < channels.length; i++) {
+        outstanding[i] = new AtomicInteger();
+      }
+    }
+
+    private void setHealthy(boolean healthy, String reason) {
+      if (this.healthy != healthy) {
+        logger.info("{} node {}: {}", healthy ? "Readmitting" : "Ejecting", target, reason);
+      }
+      if (!healthy) {
+        ejectedAt = System.nanoTime();
+      }
+      this.healthy = healthy;
+    }
+  }
+
+  private static class CountingCall<ReqT, RespT>
+      extends ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT> {
+
+    private final Node node;
+    private final AtomicInteger outstanding;
+
+    private CountingCall(Node node, int channel, ClientCall<ReqT, RespT> delegate) {
+      super(delegate);
+      this.node = node;
+      this.outstanding = node.outstanding[channel];
+    }
+
+    @Override
+    public void start(Listener<RespT> responseListener, Metadata headers) {
+      outstanding.incrementAndGet();
+      try {
+        super.start(new ForwardingClientCallListener.SimpleForwardingClientCallListener<RespT>(responseListener) {
+          @Override
+          public void onClose(Status status, Metadata trailers) {
+            outstanding.decrementAndGet();
+            if (status.getCode() == Status.Code.UNAVAILABLE) {
+              node.setHealthy(false, "call failed: " + status);
+            }
+            super.onClose(status, trailers);
+          }
+        }, headers);
+      } catch (RuntimeException e) {
+        outstanding.decrementAndGet();
+        throw e;
+      }
+    }
+  }
+}
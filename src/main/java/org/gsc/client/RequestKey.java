@@ -0,0 +1,32 @@
+package org.gsc.client;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
+
+/**
+ * Identifies a call by method name and serialized request, so equal requests built separately match.
+ */
+final class RequestKey {
+
+  private final String method;
+  private final ByteString request;
+
+  RequestKey(String method, Message request) {
+    this.method = method;
+    this.request = request.toByteString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof RequestKey)) {
+      return false;
+    }
+    RequestKey key = (RequestKey) o;
+    return method.equals(key.method) && request.equals(key.request);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * method.hashCode() + request.hashCode();
+  }
+}
@@ -0,0 +1,162 @@
+package org.gsc.client;
+
+import com.google.protobuf.Message;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of {@link WalletGrpcClient} responses, see {@link WalletGrpcClient#setCache(WalletCache)}.
+ *
+ * Final data (blocks below the head, transactions by id, assets by name) goes to a bounded LRU and
+ * stays until evicted. Recent data ({@code getNowBlock}, {@code getChainParameters}) is kept for
+ * {@code ttlMillis} only. Entries are keyed by method name and request bytes. Hits and misses are
+ * counted per tier to size the cache against real traffic.
+ */
+public class WalletCache {
+
+  private final int maxEntries;
+  private final long ttlMillis;
+
+  private final Map<RequestKey, Object> finalEntries;
+  private final Map<RequestKey, Recent> recentEntries = new HashMap<>();
+  private final AtomicLong head = new AtomicLong(-1);
+
+  private final AtomicLong finalHits = new AtomicLong();
+  private final AtomicLong finalMisses = new AtomicLong();
+  private final AtomicLong recentHits = new AtomicLong();
+  private final AtomicLong recentMisses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * @param maxEntries maximum final entries kept
+   * @param ttlMillis how long recent entries are served, 0 to not cache them
+   */
+  public WalletCache(int maxEntries, long ttlMillis) {
+    this.maxEntries = maxEntries;
+    this.ttlMillis = ttlMillis;
+    this.finalEntries = new LinkedHashMap<RequestKey, Object>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<RequestKey, Object> eldest) {
+        if (size() > WalletCache.this.maxEntries) {
+          evictions.incrementAndGet();
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return cached final response or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getFinal(String method, Message request) {
+    Object value;
+    synchronized (finalEntries) {
+      value = finalEntries.get(new RequestKey(method, request));
+    }
+    (value != null ? finalHits : finalMisses).incrementAndGet();
+    return (T) value;
+  }
+
+  public void putFinal(String method, Message request, Object value) {
+    synchronized (finalEntries) {
+      finalEntries.put(new RequestKey(method, request), value);
+    }
+  }
+
+  /**
+   * @return cached recent response younger than the TTL or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T getRecent(String method, Message request) {
+    Recent recent;
+    synchronized (recentEntries) {
+      recent = recentEntries.get(new RequestKey(method, request));
+    }
+    if (recent != null && System.nanoTime() - recent.storedAt < ttlMillis * 1_000_000) {
+      recentHits.incrementAndGet();
+      return (T) recent.value;
+    }
+    recentMisses.incrementAndGet();
+    return null;
+  }
+
+  public void putRecent(String method, Message request, Object value) {
+    if (ttlMillis <= 0) {
+      return;
+    }
+    synchronized (recentEntries) {
+      recentEntries.put(new RequestKey(method, request), new Recent(value, System.nanoTime()));
+    }
+  }
+
+  /**
+   * @return highest head block number seen, -1 before the first {@code getNowBlock}
+   */
+  public long getHead() {
+    return head.get();
+  }
+
+  public void updateHead(long blockNum) {
+    head.accumulateAndGet(blockNum, Math::max);
+  }
+
+  public void clear() {
+    synchronized (finalEntries) {
+      finalEntries.clear();
+    }
+    synchronized (recentEntries) {
+      recentEntries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (finalEntries) {
+      return finalEntries.size();
+    }
+  }
+
+  public long getFinalHits() {
+    return finalHits.get();
+  }
+
+  public long getFinalMisses() {
+    return finalMisses.get();
+  }
+
+  public long getRecentHits() {
+    return recentHits.get();
+  }
+
+  public long getRecentMisses() {
+    return recentMisses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * @return share of lookups in both tiers served from the cache, 0 before the first lookup
+   */
+  public double getHitRate() {
+    long hits = finalHits.get() + recentHits.get();
+    long lookups = hits + finalMisses.get() + recentMisses.get();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  private static class Recent {
+
+    private final Object value;
+    private final long storedAt;
+
+    private Recent(Object value, long storedAt) {
+      this.value = value;
+      this.storedAt = storedAt;
+    }
+  }
+}
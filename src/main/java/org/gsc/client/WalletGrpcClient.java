@@ -1,8 +1,14 @@
 package org.gsc.client;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.Message;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
 import org.gsc.api.GrpcAPI;
 import org.gsc.api.GrpcAPI.*;
 import org.gsc.api.WalletGrpc;
@@ -11,58 +17,137 @@ import org.gsc.protos.Contract.AssetIssueContract;
 import org.gsc.protos.Protocol;
 import org.gsc.protos.Protocol.Account;
 import org.gsc.protos.Protocol.Block;
+import org.gsc.protos.Protocol.ChainParameters;
 import org.gsc.protos.Protocol.Transaction;
 import org.gsc.utils.RPCUtils;
 import org.spongycastle.util.encoders.Hex;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Client of a node's Wallet service. Every call is available blocking and, with an {@code Async}
+ * suffix, as a {@link CompletableFuture} that doesn't hold a thread while the call is in flight.
+ * Both share the same channel. Async results complete on a gRPC thread, so heavy follow-up work
+ * belongs on the caller's own executor ({@code thenApplyAsync(fn, executor)}).
+ * <p>
+ * With a {@link WalletCache} set, blocks below the head, transactions by id and assets by name are
+ * answered from the cache once fetched, and the latest block and chain parameters for a short TTL.
+ * With {@link #setCoalescing(boolean) coalescing} on, identical account, block, transaction and asset
+ * queries running at the same time share one call.
+ */
 public class WalletGrpcClient{
 
+  private static final EmptyMessage EMPTY = EmptyMessage.getDefaultInstance();
+
   private final ManagedChannel channel;
   private final WalletGrpc.WalletBlockingStub walletBlockingStub;
+  private final WalletGrpc.WalletFutureStub walletFutureStub;
+  private final WalletGrpc.WalletStub walletStub;
+  private volatile WalletCache cache;
+  private volatile boolean coalescing;
+  private final ConcurrentMap<RequestKey, Flight<?>> inFlight = new ConcurrentHashMap<>();
+  private final AtomicLong coalescedCalls = new AtomicLong();
 
   public WalletGrpcClient(String host, int port) {
-    channel = ManagedChannelBuilder.forAddress(host, port)
+    this(ManagedChannelBuilder.forAddress(host, port)
         .usePlaintext(true)
-        .build();
-    walletBlockingStub = WalletGrpc.newBlockingStub(channel);
+        .build());
   }
 
   public WalletGrpcClient(String host) {
-    channel = ManagedChannelBuilder.forTarget(host)
+    this(ManagedChannelBuilder.forTarget(host)
         .usePlaintext(true)
-        .build();
+        .build());
+  }
+
+  /**
+   * Client over an existing channel, e.g. an in-process one; {@link #shutdown()} shuts it down.
+   */
+  public WalletGrpcClient(ManagedChannel channel) {
+    this.channel = channel;
     walletBlockingStub = WalletGrpc.newBlockingStub(channel);
+    walletFutureStub = WalletGrpc.newFutureStub(channel);
+    walletStub = WalletGrpc.newStub(channel);
+  }
+
+  /**
+   * @return callback based stub on the client's channel, for callers driving calls with their own observers
+   */
+  public WalletGrpc.WalletStub getAsyncStub() {
+    return walletStub;
+  }
+
+  /**
+   * Serves final and recent data from {@code cache} instead of asking the node each time,
+   * {@code null} to turn caching off. Clients may share a cache as long as they talk to the same chain.
+   */
+  public void setCache(WalletCache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * @return cache set by {@link #setCache(WalletCache)}, {@code null} if none
+   */
+  public WalletCache getCache() {
+    return cache;
+  }
+
+  /**
+   * With coalescing on, a read-only query issued while an identical one (same method and request
+   * bytes) is still in flight waits for that call's response instead of sending its own. The shared
+   * call runs on its own, so any caller may give up without failing the others, and it is cancelled
+   * once every caller did. Off by default.
+   */
+  public void setCoalescing(boolean coalescing) {
+    this.coalescing = coalescing;
+  }
+
+  /**
+   * @return queries answered by joining an identical call already in flight
+   */
+  public long getCoalescedCalls() {
+    return coalescedCalls.get();
   }
 
   public void shutdown() throws InterruptedException {
     channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
   }
 
+  private static Account accountRequest(byte[] address) {
+    return Account.newBuilder().setAddress(ByteString.copyFrom(address)).build();
+  }
+
   public Account queryAccount(byte[] address) {
-    ByteString addressBS = ByteString.copyFrom(address);
-    Account request = Account.newBuilder().setAddress(addressBS).build();
-    return walletBlockingStub.getAccount(request);
+    Account request = accountRequest(address);
+    return coalesced("GetAccount", request, () -> walletBlockingStub.getAccount(request),
+        () -> toCompletableFuture(walletFutureStub.getAccount(request)));
   }
 
   public Account getAccountById(byte[] accountId){
     ByteString accountIdBS = ByteString.copyFrom(accountId);
     Account request = Account.newBuilder().setAccountId(accountIdBS).build();
-    return walletBlockingStub.getAccountById(request);
+    return coalesced("GetAccountById", request, () -> walletBlockingStub.getAccountById(request),
+        () -> toCompletableFuture(walletFutureStub.getAccountById(request)));
   }
 
   public AccountNetMessage getAccountNet(byte[] address){
-    ByteString addressBS = ByteString.copyFrom(address);
-    Account request = Account.newBuilder().setAddress(addressBS).build();
-    return walletBlockingStub.getAccountNet(request);
+    Account request = accountRequest(address);
+    return coalesced("GetAccountNet", request, () -> walletBlockingStub.getAccountNet(request),
+        () -> toCompletableFuture(walletFutureStub.getAccountNet(request)));
   }
 
   public AccountResourceMessage getAccountResource(byte[] address){
-    ByteString addressBS = ByteString.copyFrom(address);
-    Account request = Account.newBuilder().setAddress(addressBS).build();
-    return walletBlockingStub.getAccountResource(request);
+    Account request = accountRequest(address);
+    return coalesced("GetAccountResource", request, () -> walletBlockingStub.getAccountResource(request),
+        () -> toCompletableFuture(walletFutureStub.getAccountResource(request)));
   }
 
   public Transaction createTransferTransaction(Contract.TransferContract contract) {
@@ -105,6 +190,17 @@ public class WalletGrpcClient{
   public Transaction deployContract(String contractName,
                             String originAddress,
                             String abiStr, String byteCode, long callValue, long consumeUserResourcePercent){
+    TransactionExtention response = walletBlockingStub.deployContract(
+        deployRequest(contractName, originAddress, abiStr, byteCode, callValue, consumeUserResourcePercent));
+    if (response.getResult().getResult()){
+      return response.getTransaction();
+    }
+    return null;
+  }
+
+  private static Contract.CreateSmartContract deployRequest(String contractName,
+                            String originAddress,
+                            String abiStr, String byteCode, long callValue, long consumeUserResourcePercent){
     Protocol.SmartContract.ABI abi = RPCUtils.jsonStr2ABI(abiStr);
 
     Protocol.SmartContract.Builder smartContract = Protocol.SmartContract.newBuilder();
@@ -115,13 +211,8 @@ public class WalletGrpcClient{
     smartContract.setCallValue(callValue);
     smartContract.setBytecode(ByteString.copyFrom(Hex.decode(byteCode)));
     smartContract.setConsumeUserResourcePercent(consumeUserResourcePercent);
-    Contract.CreateSmartContract request = Contract.CreateSmartContract.newBuilder()
+    return Contract.CreateSmartContract.newBuilder()
             .setNewContract(smartContract).setOwnerAddress(ByteString.copyFrom(Hex.decode(originAddress))).build();
-    TransactionExtention response = walletBlockingStub.deployContract(request);
-    if (response.getResult().getResult()){
-      return response.getTransaction();
-    }
-    return null;
   }
 
 
@@ -156,22 +247,35 @@ public class WalletGrpcClient{
 
   public Block getBlock(long blockNum) {
     if (blockNum < 0) {
-      return walletBlockingStub.getNowBlock(EmptyMessage.newBuilder().build());
+      return getNowBlock();
     }
-    NumberMessage.Builder builder = NumberMessage.newBuilder();
-    builder.setNum(blockNum);
-    return walletBlockingStub.getBlockByNum(builder.build());
+    return getBlockByNum(blockNum);
   }
 
   public Block getNowBlock(){
-    EmptyMessage emptyMessage = EmptyMessage.newBuilder().build();
-    Block block = walletBlockingStub.getNowBlock(emptyMessage);
-    return block;
+    return cachedRecent("GetNowBlock", EMPTY, () -> noteHead(walletBlockingStub.getNowBlock(EMPTY)),
+        this::nowBlockCall);
   }
 
   public Block getBlockByNum(int number){
-    NumberMessage numberMessage = NumberMessage.newBuilder().setNum(number).build();
-    return  walletBlockingStub.getBlockByNum(numberMessage);
+    return getBlockByNum((long) number);
+  }
+
+  private Block getBlockByNum(long number) {
+    NumberMessage request = NumberMessage.newBuilder().setNum(number).build();
+    return cachedFinal("GetBlockByNum", request, () -> walletBlockingStub.getBlockByNum(request),
+        () -> toCompletableFuture(walletFutureStub.getBlockByNum(request)), block -> isFinalBlock(number, block));
+  }
+
+  public Transaction getTransactionById(byte[] txId) {
+    BytesMessage request = BytesMessage.newBuilder().setValue(ByteString.copyFrom(txId)).build();
+    return cachedFinal("GetTransactionById", request, () -> walletBlockingStub.getTransactionById(request),
+        () -> toCompletableFuture(walletFutureStub.getTransactionById(request)), WalletGrpcClient::isFound);
+  }
+
+  public ChainParameters getChainParameters() {
+    return cachedRecent("GetChainParameters", EMPTY, () -> walletBlockingStub.getChainParameters(EMPTY),
+        () -> toCompletableFuture(walletFutureStub.getChainParameters(EMPTY)));
   }
 
   public Optional<BlockList> getBlockByLatestNum(int latestNum){
@@ -247,10 +351,8 @@ public class WalletGrpcClient{
   }
 
   public Optional<AssetIssueList> getAssetIssueByAccount(byte[] address) {
-    ByteString addressBS = ByteString.copyFrom(address);
-    Account request = Account.newBuilder().setAddress(addressBS).build();
     AssetIssueList assetIssueList = walletBlockingStub
-        .getAssetIssueByAccount(request);
+        .getAssetIssueByAccount(accountRequest(address));
     if (assetIssueList != null) {
       return Optional.of(assetIssueList);
     }
@@ -258,9 +360,14 @@ public class WalletGrpcClient{
   }
 
   public AssetIssueContract getAssetIssueByName(String assetName) {
+    BytesMessage request = assetNameRequest(assetName);
+    return cachedFinal("GetAssetIssueByName", request, () -> walletBlockingStub.getAssetIssueByName(request),
+        () -> toCompletableFuture(walletFutureStub.getAssetIssueByName(request)), WalletGrpcClient::isFound);
+  }
+
+  private static BytesMessage assetNameRequest(String assetName) {
     ByteString assetNameBs = ByteString.copyFrom(assetName.getBytes());
-    BytesMessage request = BytesMessage.newBuilder().setValue(assetNameBs).build();
-    return walletBlockingStub.getAssetIssueByName(request);
+    return BytesMessage.newBuilder().setValue(assetNameBs).build();
   }
 
   public Transaction withdrawBalance(Contract.WithdrawBalanceContract withdrawBalanceContract){
@@ -270,4 +377,419 @@ public class WalletGrpcClient{
     }
     return null;
   }
+
+  // Async counterparts of the calls above; they complete exceptionally with the call's StatusRuntimeException.
+
+  public CompletableFuture<Account> queryAccountAsync(byte[] address) {
+    Account request = accountRequest(address);
+    return coalescedAsync("GetAccount", request, () -> toCompletableFuture(walletFutureStub.getAccount(request)));
+  }
+
+  public CompletableFuture<Account> getAccountByIdAsync(byte[] accountId) {
+    Account request = Account.newBuilder().setAccountId(ByteString.copyFrom(accountId)).build();
+    return coalescedAsync("GetAccountById", request,
+        () -> toCompletableFuture(walletFutureStub.getAccountById(request)));
+  }
+
+  public CompletableFuture<AccountNetMessage> getAccountNetAsync(byte[] address) {
+    Account request = accountRequest(address);
+    return coalescedAsync("GetAccountNet", request,
+        () -> toCompletableFuture(walletFutureStub.getAccountNet(request)));
+  }
+
+  public CompletableFuture<AccountResourceMessage> getAccountResourceAsync(byte[] address) {
+    Account request = accountRequest(address);
+    return coalescedAsync("GetAccountResource", request,
+        () -> toCompletableFuture(walletFutureStub.getAccountResource(request)));
+  }
+
+  public CompletableFuture<Transaction> createTransferTransactionAsync(Contract.TransferContract contract) {
+    return toCompletableFuture(walletFutureStub.createTransaction(contract));
+  }
+
+  public CompletableFuture<Transaction> createFreezeBalanceTransactionAsync(Contract.FreezeBalanceContract contract) {
+    return toCompletableFuture(walletFutureStub.freezeBalance(contract));
+  }
+
+  public CompletableFuture<Transaction> createTransferAssetTransactionAsync(Contract.TransferAssetContract contract) {
+    return toCompletableFuture(walletFutureStub.transferAsset(contract));
+  }
+
+  public CompletableFuture<Transaction> createParticipateAssetIssueTransactionAsync(
+      Contract.ParticipateAssetIssueContract contract) {
+    return toCompletableFuture(walletFutureStub.participateAssetIssue(contract));
+  }
+
+  public CompletableFuture<Transaction> createWitnessUpdateTransactionAsync(ByteString ownerAddress, ByteString url) {
+    Contract.WitnessUpdateContract request = Contract.WitnessUpdateContract.newBuilder()
+        .setOwnerAddress(ownerAddress).setUpdateUrl(url).build();
+    return toCompletableFuture(walletFutureStub.updateWitness(request));
+  }
+
+  /**
+   * @return the deploy transaction, {@code null} if the node refused it
+   */
+  public CompletableFuture<Transaction> deployContractAsync(String contractName, String originAddress,
+      String abiStr, String byteCode, long callValue, long consumeUserResourcePercent) {
+    Contract.CreateSmartContract request =
+        deployRequest(contractName, originAddress, abiStr, byteCode, callValue, consumeUserResourcePercent);
+    return toCompletableFuture(walletFutureStub.deployContract(request))
+        .thenApply(response -> response.getResult().getResult() ? response.getTransaction() : null);
+  }
+
+  public CompletableFuture<Return> easyTransferAsync(long amount, ByteString toAddress, ByteString passPhrase) {
+    EasyTransferMessage request = EasyTransferMessage.newBuilder().setAmount(amount)
+        .setToAddress(toAddress)
+        .setPassPhrase(passPhrase).build();
+    return toCompletableFuture(walletFutureStub.easyTransfer(request)).thenApply(EasyTransferResponse::getResult);
+  }
+
+  public CompletableFuture<Transaction> createAssetIssueAsync(AssetIssueContract contract) {
+    return toCompletableFuture(walletFutureStub.createAssetIssue(contract));
+  }
+
+  public CompletableFuture<Transaction> voteWitnessAccountAsync(Contract.VoteWitnessContract contract) {
+    return toCompletableFuture(walletFutureStub.voteWitnessAccount(contract));
+  }
+
+  public CompletableFuture<Transaction> createWitnessAsync(Contract.WitnessCreateContract contract) {
+    return toCompletableFuture(walletFutureStub.createWitness(contract));
+  }
+
+  public CompletableFuture<Boolean> broadcastTransactionAsync(Transaction signaturedTransaction) {
+    return toCompletableFuture(walletFutureStub.broadcastTransaction(signaturedTransaction)).thenApply(Return::getResult);
+  }
+
+  /**
+   * @param blockNum block number, negative for the latest block
+   */
+  public CompletableFuture<Block> getBlockAsync(long blockNum) {
+    if (blockNum < 0) {
+      return getNowBlockAsync();
+    }
+    return getBlockByNumAsync(blockNum);
+  }
+
+  public CompletableFuture<Block> getNowBlockAsync() {
+    return cachedRecentAsync("GetNowBlock", EMPTY, this::nowBlockCall);
+  }
+
+  public CompletableFuture<Block> getBlockByNumAsync(long number) {
+    NumberMessage request = NumberMessage.newBuilder().setNum(number).build();
+    return cachedFinalAsync("GetBlockByNum", request,
+        () -> toCompletableFuture(walletFutureStub.getBlockByNum(request)), block -> isFinalBlock(number, block));
+  }
+
+  public CompletableFuture<Transaction> getTransactionByIdAsync(byte[] txId) {
+    BytesMessage request = BytesMessage.newBuilder().setValue(ByteString.copyFrom(txId)).build();
+    return cachedFinalAsync("GetTransactionById", request,
+        () -> toCompletableFuture(walletFutureStub.getTransactionById(request)), WalletGrpcClient::isFound);
+  }
+
+  public CompletableFuture<ChainParameters> getChainParametersAsync() {
+    return cachedRecentAsync("GetChainParameters", EMPTY,
+        () -> toCompletableFuture(walletFutureStub.getChainParameters(EMPTY)));
+  }
+
+  public CompletableFuture<BlockList> getBlockByLatestNumAsync(int latestNum) {
+    return toCompletableFuture(walletFutureStub.getBlockByLatestNum(NumberMessage.newBuilder().setNum(latestNum).build()));
+  }
+
+  public CompletableFuture<BlockList> getBlockByLimitNextAsync(long startNum, long endNum) {
+    BlockLimit request = BlockLimit.newBuilder().setStartNum(startNum).setEndNum(endNum).build();
+    return toCompletableFuture(walletFutureStub.getBlockByLimitNext(request));
+  }
+
+  public CompletableFuture<NumberMessage> getTransactionCountByBlockNumAsync(long blockNum) {
+    return toCompletableFuture(walletFutureStub.getTransactionCountByBlockNum(NumberMessage.newBuilder().setNum(blockNum).build()));
+  }
+
+  public CompletableFuture<NumberMessage> totalTransactionAsync() {
+    return toCompletableFuture(walletFutureStub.totalTransaction(EMPTY));
+  }
+
+  public CompletableFuture<NodeList> listNodesAsync() {
+    return toCompletableFuture(walletFutureStub.listNodes(EMPTY));
+  }
+
+  public CompletableFuture<GrpcAPI.VoteStatistics> getWitnessVoteStatisticsAsync() {
+    return toCompletableFuture(walletFutureStub.getWitnessVoteStatistics(EMPTY));
+  }
+
+  public CompletableFuture<AssetIssueList> getAssetIssueListAsync() {
+    return toCompletableFuture(walletFutureStub.getAssetIssueList(EMPTY));
+  }
+
+  public CompletableFuture<AssetIssueList> getPaginatedAssetIssueListAsync(int offset, int limit) {
+    PaginatedMessage request = PaginatedMessage.newBuilder().setOffset(offset).setLimit(limit).build();
+    return toCompletableFuture(walletFutureStub.getPaginatedAssetIssueList(request));
+  }
+
+  public CompletableFuture<AssetIssueList> getAssetIssueByAccountAsync(byte[] address) {
+    return toCompletableFuture(walletFutureStub.getAssetIssueByAccount(accountRequest(address)));
+  }
+
+  public CompletableFuture<AssetIssueContract> getAssetIssueByNameAsync(String assetName) {
+    BytesMessage request = assetNameRequest(assetName);
+    return cachedFinalAsync("GetAssetIssueByName", request,
+        () -> toCompletableFuture(walletFutureStub.getAssetIssueByName(request)), WalletGrpcClient::isFound);
+  }
+
+  public CompletableFuture<Transaction> withdrawBalanceAsync(Contract.WithdrawBalanceContract withdrawBalanceContract) {
+    return toCompletableFuture(walletFutureStub.withdrawBalance(withdrawBalanceContract));
+  }
+
+  private Block noteHead(Block block) {
+    WalletCache cache = this.cache;
+    if (cache != null) {
+      cache.updateHead(block.getBlockHeader().getRawData().getNumber());
+    }
+    return block;
+  }
+
+  // a block is final once the chain has moved past it; the node answers an empty block for numbers it doesn't have
+  private boolean isFinalBlock(long number, Block block) {
+    WalletCache cache = this.cache;
+    return cache != null && number < cache.getHead() && block.hasBlockHeader()
+        && block.getBlockHeader().getRawData().getNumber() == number;
+  }
+
+  // unknown ids and names come back as the default instance, which must not stick
+  private static boolean isFound(Message response) {
+    return !response.equals(response.getDefaultInstanceForType());
+  }
+
+  // the head is noted on the side, so cancelling the call's future still cancels the call
+  private CompletableFuture<Block> nowBlockCall() {
+    CompletableFuture<Block> call = toCompletableFuture(walletFutureStub.getNowBlock(EMPTY));
+    call.thenAccept(this::noteHead);
+    return call;
+  }
+
+  private <T> T cachedFinal(String method, Message request, Supplier<T> call,
+      Supplier<CompletableFuture<T>> sharedCall, Predicate<T> isFinal) {
+    WalletCache cache = this.cache;
+    if (cache == null) {
+      return coalesced(method, request, call, sharedCall);
+    }
+    T value = cache.getFinal(method, request);
+    if (value == null) {
+      value = coalesced(method, request, call, sharedCall);
+      if (isFinal.test(value)) {
+        cache.putFinal(method, request, value);
+      }
+    }
+    return value;
+  }
+
+  private <T> T cachedRecent(String method, Message request, Supplier<T> call,
+      Supplier<CompletableFuture<T>> sharedCall) {
+    WalletCache cache = this.cache;
+    if (cache == null) {
+      return coalesced(method, request, call, sharedCall);
+    }
+    T value = cache.getRecent(method, request);
+    if (value == null) {
+      value = coalesced(method, request, call, sharedCall);
+      cache.putRecent(method, request, value);
+    }
+    return value;
+  }
+
+  private <T> CompletableFuture<T> cachedFinalAsync(String method, Message request,
+      Supplier<CompletableFuture<T>> call, Predicate<T> isFinal) {
+    WalletCache cache = this.cache;
+    if (cache == null) {
+      return coalescedAsync(method, request, call);
+    }
+    T value = cache.getFinal(method, request);
+    if (value != null) {
+      return CompletableFuture.completedFuture(value);
+    }
+    CompletableFuture<T> future = coalescedAsync(method, request, call);
+    future.thenAccept(response -> {
+      if (isFinal.test(response)) {
+        cache.putFinal(method, request, response);
+      }
+    });
+    return future;
+  }
+
+  private <T> CompletableFuture<T> cachedRecentAsync(String method, Message request,
+      Supplier<CompletableFuture<T>> call) {
+    WalletCache cache = this.cache;
+    if (cache == null) {
+      return coalescedAsync(method, request, call);
+    }
+    T value = cache.getRecent(method, request);
+    if (value != null) {
+      return CompletableFuture.completedFuture(value);
+    }
+    CompletableFuture<T> future = coalescedAsync(method, request, call);
+    future.thenAccept(response -> cache.putRecent(method, request, response));
+    return future;
+  }
+
+  /**
+   * Runs {@code call} on the blocking stub, or with coalescing on waits for the shared
+   * {@code sharedCall} of all identical queries. Like the blocking stub, a waiting caller has no
+   * deadline of its own; interrupting it only gives up its own share. A failure of the call reaches
+   * every caller as the same StatusRuntimeException.
+   */
+  private <T> T coalesced(String method, Message request, Supplier<T> call, Supplier<CompletableFuture<T>> sharedCall) {
+    if (!coalescing) {
+      return call.get();
+    }
+    CompletableFuture<T> future = coalescedAsync(method, request, sharedCall);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw Status.CANCELLED.withDescription("Interrupted while waiting for " + method).withCause(e).asRuntimeException();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof RuntimeException ? (RuntimeException) cause : Status.fromThrowable(cause).asRuntimeException();
+    }
+  }
+
+  /**
+   * Starts {@code call} detached from any one caller unless an identical call is in flight, and
+   * hands out a follower of it. Every caller gets its own follower, so cancelling one doesn't fail
+   * the others; the call itself is cancelled once all of its followers are.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<T> coalescedAsync(String method, Message request, Supplier<CompletableFuture<T>> call) {
+    if (!coalescing) {
+      return call.get();
+    }
+    RequestKey key = new RequestKey(method, request);
+    while (true) {
+      Flight<T> flight = new Flight<>(key);
+      Flight<T> existing = (Flight<T>) inFlight.putIfAbsent(key, flight);
+      if (existing == null) {
+        CompletableFuture<T> follower = flight.follow();
+        flight.start(call);
+        return follower;
+      }
+      CompletableFuture<T> follower = existing.follow();
+      if (follower != null) {
+        coalescedCalls.incrementAndGet();
+        return follower;
+      }
+      // abandoned by its last follower and about to leave the map
+      inFlight.remove(key, existing);
+    }
+  }
+
+  /**
+   * Call shared by identical queries, alive as long as one of its followers is.
+   */
+  private final class Flight<T> {
+
+    private final RequestKey key;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private CompletableFuture<T> source;
+    private int followers;
+    private boolean abandoned;
+
+    private Flight(RequestKey key) {
+      this.key = key;
+    }
+
+    private void start(Supplier<CompletableFuture<T>> call) {
+      CompletableFuture<T> started;
+      try {
+        started = call.get();
+      } catch (RuntimeException | Error e) {
+        inFlight.remove(key, this);
+        result.completeExceptionally(e);
+        return;
+      }
+      boolean cancel;
+      synchronized (this) {
+        source = started;
+        cancel = abandoned;
+      }
+      started.whenComplete((value, e) -> {
+        inFlight.remove(key, this);
+        if (e != null) {
+          result.completeExceptionally(e);
+        } else {
+          result.complete(value);
+        }
+      });
+      if (cancel) {
+        started.cancel(true);
+      }
+    }
+
+    /**
+     * @return a new follower, {@code null} if all followers already left and the call is cancelled
+     */
+    private synchronized CompletableFuture<T> follow() {
+      if (abandoned) {
+        return null;
+      }
+      followers++;
+      CompletableFuture<T> follower = new CompletableFuture<T>() {
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+          boolean cancelled = super.cancel(mayInterruptIfRunning);
+          if (cancelled) {
+            unfollow();
+          }
+          return cancelled;
+        }
+      };
+      result.whenComplete((value, e) -> {
+        if (e != null) {
+          follower.completeExceptionally(e);
+        } else {
+          follower.complete(value);
+        }
+      });
+      return follower;
+    }
+
+    private void unfollow() {
+      CompletableFuture<T> cancel;
+      synchronized (this) {
+        if (--followers > 0 || result.isDone()) {
+          return;
+        }
+        abandoned = true;
+        cancel = source;
+      }
+      inFlight.remove(key, this);
+      if (cancel != null) {
+        cancel.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Bridges gRPC's future; cancelling the returned future cancels the call.
+   */
+  private static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> call) {
+    CompletableFuture<T> future = new CompletableFuture<T>() {
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        call.cancel(mayInterruptIfRunning);
+        return super.cancel(mayInterruptIfRunning);
+      }
+    };
+    Futures.addCallback(call, new FutureCallback<T>() {
+      @Override
+      public void onSuccess(T result) {
+        future.complete(result);
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        future.completeExceptionally(t);
+      }
+    }, MoreExecutors.directExecutor());
+    return future;
+  }
 }
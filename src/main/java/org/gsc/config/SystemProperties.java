@@ -31,6 +31,7 @@ import java.lang.annotation.Target;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 /**
@@ -201,4 +202,75 @@ public class SystemProperties {
         return config.hasPath("solc.version") ? config.getString("solc.version"): null;
     }
 
+    public List<String> getSolcVersions() {
+        return config.hasPath("solc.versions") ? config.getStringList("solc.versions") : Collections.singletonList(getSolcVersion());
+    }
+
+    public int getSolcVersionMaxConcurrent() {
+        return config.hasPath("solc.versionMaxConcurrent") ? config.getInt("solc.versionMaxConcurrent") : Runtime.getRuntime().availableProcessors();
+    }
+
+    public String getSolcBackend() {
+        if (config.hasPath("solc.backend")) {
+            return config.getString("solc.backend");
+        }
+        return getSolcCacheSize() > 0 ? "cached" : getSolcPoolSize() > 0 ? "pooled" : "process";
+    }
+
+    public String getSolcReplayDir() {
+        return config.hasPath("solc.replay.dir") ? config.getString("solc.replay.dir") : getSolcCacheDir();
+    }
+
+    public int getSolcPoolSize() {
+        return config.hasPath("solc.pool.size") ? config.getInt("solc.pool.size") : 0;
+    }
+
+    public long getSolcPoolMaxIdleMillis() {
+        return config.hasPath("solc.pool.maxIdle") ? config.getDuration("solc.pool.maxIdle", TimeUnit.MILLISECONDS) : 300_000;
+    }
+
+    public long getSolcPoolHealthCheckMillis() {
+        return config.hasPath("solc.pool.healthCheck") ? config.getDuration("solc.pool.healthCheck", TimeUnit.MILLISECONDS) : 10_000;
+    }
+
+    public int getSolcCacheSize() {
+        return config.hasPath("solc.cache.size") ? config.getInt("solc.cache.size") : 0;
+    }
+
+    public String getSolcCacheDir() {
+        return config.hasPath("solc.cache.dir") ? config.getString("solc.cache.dir") : null;
+    }
+
+    public int getSolcAsyncThreads() {
+        return config.hasPath("solc.async.threads") ? config.getInt("solc.async.threads") : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getSolcBatchMaxSources() {
+        return config.hasPath("solc.batch.maxSources") ? config.getInt("solc.batch.maxSources") : 100;
+    }
+
+    public long getSolcBatchMaxBytes() {
+        return config.hasPath("solc.batch.maxBytes") ? config.getBytes("solc.batch.maxBytes") : 8 * 1024 * 1024;
+    }
+
+    public long getSolcTimeoutMillis() {
+        return config.hasPath("solc.timeout") ? config.getDuration("solc.timeout", TimeUnit.MILLISECONDS) : 0;
+    }
+
+    public long getSolcMemoryLimit() {
+        return config.hasPath("solc.memoryLimit") ? config.getBytes("solc.memoryLimit") : 0;
+    }
+
+    public int getSolcSchedulerMaxConcurrent() {
+        return config.hasPath("solc.scheduler.maxConcurrent") ? config.getInt("solc.scheduler.maxConcurrent") : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int getSolcSchedulerQueueCapacity() {
+        return config.hasPath("solc.scheduler.queueCapacity") ? config.getInt("solc.scheduler.queueCapacity") : 1000;
+    }
+
+    public String getSolcSchedulerRejectionPolicy() {
+        return config.hasPath("solc.scheduler.rejectionPolicy") ? config.getString("solc.scheduler.rejectionPolicy") : "abort";
+    }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Outcome of {@link SolidityCompiler#compileBatch}: one {@link CompilationResult} plus the
+ * errors and warnings reported for each source of the batch.
+ */
+public class BatchResult {
+
+    private final Map<String, CompilationResult> results = new LinkedHashMap<>();
+    private final Map<String, List<String>> errors = new LinkedHashMap<>();
+    private final Map<String, List<String>> warnings = new LinkedHashMap<>();
+    private final Map<String, List<Diagnostic>> diagnostics = new LinkedHashMap<>();
+    private final Set<String> skipped = new LinkedHashSet<>();
+
+    void addSource(String sourceName, CompilationResult result) {
+        results.put(sourceName, result);
+    }
+
+    void addError(String sourceName, String message) {
+        errors.computeIfAbsent(sourceName, k -> new ArrayList<>()).add(message);
+    }
+
+    void addWarning(String sourceName, String message) {
+        warnings.computeIfAbsent(sourceName, k -> new ArrayList<>()).add(message);
+    }
+
+    void addDiagnostic(String sourceName, Diagnostic diagnostic) {
+        diagnostics.computeIfAbsent(sourceName, k -> new ArrayList<>()).add(diagnostic);
+    }
+
+    /**
+     * Fails a source solc dropped without an error of its own because another source had errors.
+     */
+    void addSkipped(String sourceName, String message) {
+        skipped.add(sourceName);
+        addError(sourceName, message);
+        addDiagnostic(sourceName, new Diagnostic(Diagnostic.Severity.ERROR, sourceName, 0, 0, "Error", message));
+    }
+
+    Set<String> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Copies everything reported for one source of {@code other}.
+     */
+    void add(BatchResult other, String sourceName) {
+        results.put(sourceName, other.results.get(sourceName));
+        if (other.errors.containsKey(sourceName)) {
+            errors.put(sourceName, other.errors.get(sourceName));
+        }
+        if (other.warnings.containsKey(sourceName)) {
+            warnings.put(sourceName, other.warnings.get(sourceName));
+        }
+        if (other.diagnostics.containsKey(sourceName)) {
+            diagnostics.put(sourceName, other.diagnostics.get(sourceName));
+        }
+        if (other.skipped.contains(sourceName)) {
+            skipped.add(sourceName);
+        }
+    }
+
+    void addAll(BatchResult other) {
+        results.putAll(other.results);
+        other.errors.forEach((name, messages) -> errors.computeIfAbsent(name, k -> new ArrayList<>()).addAll(messages));
+        other.warnings.forEach((name, messages) -> warnings.computeIfAbsent(name, k -> new ArrayList<>()).addAll(messages));
+        other.diagnostics.forEach((name, list) -> diagnostics.computeIfAbsent(name, k -> new ArrayList<>()).addAll(list));
+        skipped.addAll(other.skipped);
+    }
+
+    /**
+     * @return names of all sources of the batch, in submission order
+     */
+    public Set<String> getSourceNames() {
+        return Collections.unmodifiableSet(results.keySet());
+    }
+
+    /**
+     * @return contracts compiled from the given source; empty if the source failed to compile
+     */
+    public CompilationResult getResult(String sourceName) {
+        return results.get(sourceName);
+    }
+
+    /**
+     * @return contracts of all sources of the batch in one result
+     */
+    public CompilationResult getCombinedResult() {
+        return CompilationResult.merge(results.values());
+    }
+
+    public List<String> getErrors(String sourceName) {
+        return errors.getOrDefault(sourceName, Collections.emptyList());
+    }
+
+    public List<String> getWarnings(String sourceName) {
+        return warnings.getOrDefault(sourceName, Collections.emptyList());
+    }
+
+    /**
+     * @return structured form of the errors and warnings reported for the source
+     */
+    public List<Diagnostic> getDiagnostics(String sourceName) {
+        return diagnostics.getOrDefault(sourceName, Collections.emptyList());
+    }
+
+    public boolean isFailed(String sourceName) {
+        return !getErrors(sourceName).isEmpty();
+    }
+
+    /**
+     * @return {@code true} if any source of the batch has errors
+     */
+    public boolean isFailed() {
+        return !errors.isEmpty();
+    }
+}
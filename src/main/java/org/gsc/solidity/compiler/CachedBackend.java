@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Answers self-contained runs from a {@link CompilationCache} and runs the delegate on a miss.
+ * solc is only started once the input is known and missed the cache. Successful outputs are
+ * buffered to be cached, so the handler reads them from memory rather than from solc's stdout.
+ */
+public class CachedBackend implements CompilerBackend {
+
+    private final CompilerBackend delegate;
+    private final CompilationCache cache;
+    private final String solcVersion;
+
+    public CachedBackend(CompilerBackend delegate, CompilationCache cache, String solcVersion) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.solcVersion = solcVersion;
+    }
+
+    public CompilationCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public Invocation start(List<String> commandParts, boolean selfContained, CompilerMetrics metrics) throws IOException {
+        if (!selfContained) {
+            return delegate.start(commandParts, false, metrics);
+        }
+        return new Invocation() {
+            private volatile Invocation running;
+            private volatile boolean destroyed;
+
+            @Override
+            public <T> Completion<T> run(byte[] input, OutputHandler<T> handler, long timeoutMillis) throws IOException {
+                String key = key(commandParts, input, solcVersion);
+                SolidityCompiler.Result cached = cache.get(key);
+                if (cached != null) {
+                    return replay(cached, handler);
+                }
+                if (destroyed) {
+                    throw new IOException("solc run aborted");
+                }
+                running = delegate.start(commandParts, true, metrics);
+                if (destroyed) {
+                    running.destroy();
+                    throw new IOException("solc run aborted");
+                }
+                Completion<String> completion = running.run(input, SolcProcess::readFully, timeoutMillis);
+                if (completion.timedOut || completion.exitCode != 0) {
+                    return new Completion<>(null, completion.errors, completion.exitCode, completion.timedOut);
+                }
+                cache.put(key, new SolidityCompiler.Result(completion.errors, completion.output, true));
+                return new Completion<>(handler.handle(new ByteArrayInputStream(completion.output.getBytes(UTF_8))),
+                        completion.errors, completion.exitCode, false);
+            }
+
+            @Override
+            public void destroy() {
+                destroyed = true;
+                Invocation invocation = running;
+                if (invocation != null) {
+                    invocation.destroy();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return cache key of a run; the executable path is left out, so recordings survive relocation
+     */
+    static String key(List<String> commandParts, byte[] input, String solcVersion) {
+        return CompilationCache.key(input == null ? new byte[0] : input, solcVersion,
+                commandParts.subList(1, commandParts.size()));
+    }
+
+    static <T> Completion<T> replay(SolidityCompiler.Result result, OutputHandler<T> handler) throws IOException {
+        T output = handler.handle(new ByteArrayInputStream(result.output.getBytes(UTF_8)));
+        return new Completion<>(output, result.errors, 0, false);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gsc.utils.Sha256Hash;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Content addressed cache of successful compilations.
+ *
+ * Entries are keyed by the SHA-256 of the source bytes, the solc version and the normalized
+ * command options, so a hit is guaranteed to be what solc would have produced. The in-memory
+ * tier is a bounded LRU; the optional disk tier keeps one file per entry and survives restarts.
+ */
+@Slf4j
+public class CompilationCache {
+
+    private static final int DISK_FORMAT = 1;
+
+    private final int maxEntries;
+    private final File diskDir;
+
+    private final Map<String, SolidityCompiler.Result> entries;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxEntries maximum entries kept in memory
+     * @param diskDir directory of the persistent tier, {@code null} to keep entries in memory only
+     */
+    public CompilationCache(int maxEntries, File diskDir) {
+        this.maxEntries = maxEntries;
+        this.diskDir = diskDir;
+        this.entries = new LinkedHashMap<String, SolidityCompiler.Result>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SolidityCompiler.Result> eldest) {
+                if (size() > CompilationCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (diskDir != null) {
+            diskDir.mkdirs();
+        }
+    }
+
+    /**
+     * @param source contract source
+     * @param solcVersion version of the compiler producing the output
+     * @param options command line options, without the executable
+     * @return hex encoded cache key
+     */
+    public static String key(byte[] source, String solcVersion, List<String> options) {
+        MessageDigest digest = Sha256Hash.newDigest();
+        digest.update(Sha256Hash.hash(source));
+        digest.update(String.valueOf(solcVersion).getBytes(UTF_8));
+        for (String option : options) {
+            // separator keeps ("ab", "c") and ("a", "bc") apart
+            digest.update((byte) 0);
+            digest.update(option.getBytes(UTF_8));
+        }
+        return Sha256Hash.wrap(digest.digest()).toString();
+    }
+
+    /**
+     * @return cached result or {@code null} if neither tier holds the key
+     */
+    public SolidityCompiler.Result get(String key) {
+        SolidityCompiler.Result result;
+        synchronized (entries) {
+            result = entries.get(key);
+        }
+        if (result != null) {
+            memoryHits.incrementAndGet();
+            return result;
+        }
+        result = readFromDisk(key);
+        if (result != null) {
+            diskHits.incrementAndGet();
+            synchronized (entries) {
+                entries.put(key, result);
+            }
+            return result;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, SolidityCompiler.Result result) {
+        synchronized (entries) {
+            entries.put(key, result);
+        }
+        writeToDisk(key, result);
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return memoryHits.get() + diskHits.get();
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    private Path diskPath(String key) {
+        return new File(new File(diskDir, key.substring(0, 2)), key).toPath();
+    }
+
+    private SolidityCompiler.Result readFromDisk(String key) {
+        if (diskDir == null) {
+            return null;
+        }
+        Path path = diskPath(key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != DISK_FORMAT) {
+                return null;
+            }
+            boolean success = in.readBoolean();
+            String errors = readString(in);
+            String output = readString(in);
+            return new SolidityCompiler.Result(errors, output, success);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Can't read cached compilation " + path, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, SolidityCompiler.Result result) {
+        if (diskDir == null) {
+            return;
+        }
+        Path path = diskPath(key);
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(DISK_FORMAT);
+                out.writeBoolean(!result.isFailed());
+                writeString(out, result.errors);
+                writeString(out, result.output);
+            }
+            // concurrent writers produce identical content, so whoever moves last wins harmlessly
+            try {
+                Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn("Can't store compilation in " + path, e);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
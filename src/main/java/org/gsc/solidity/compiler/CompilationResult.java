@@ -20,34 +20,336 @@ package org.gsc.solidity.compiler;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
+import org.spongycastle.util.encoders.Hex;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 @Slf4j
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CompilationResult {
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    static {
+        // the caller owns streams passed to parse(InputStream)
+        MAPPER.getFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+    /**
+     * Thread-safe reader with the root deserializer already resolved.
+     */
+    private static final ObjectReader READER = MAPPER.reader(CompilationResult.class);
+
     @JsonProperty("contracts") private Map<String, ContractMetadata> contracts;
     @JsonProperty("version") public String version;
 
+    // built on first use; contracts are not modified after parsing
+    @JsonIgnore private volatile Map<String, List<ContractMetadata>> nameIndex;
+    @JsonIgnore private volatile List<ContractMetadata> contractList;
+    @JsonIgnore private volatile List<String> contractKeyList;
+
+    public CompilationResult() {
+    }
+
+    CompilationResult(Map<String, ContractMetadata> contracts, String version) {
+        this.contracts = contracts;
+        this.version = version;
+    }
+
     @JsonIgnore public static CompilationResult parse(String rawJson) throws IOException {
+        return parse(rawJson, CompilerMetrics.NOOP);
+    }
+
+    /**
+     * Same as {@link #parse(String)}, reporting the {@link CompilerMetrics.Phase#PARSE} time to
+     * the given metrics, e.g. {@link SolidityCompiler#getMetrics()} of the compiler that produced
+     * the output.
+     */
+    @JsonIgnore public static CompilationResult parse(String rawJson, CompilerMetrics metrics) throws IOException {
         if(rawJson == null || rawJson.isEmpty()){
-            CompilationResult empty = new CompilationResult();
-            empty.contracts = Collections.emptyMap();
-            empty.version = "";
+            return empty();
+        } else {
+            long start = System.nanoTime();
+            CompilationResult result = READER.readValue(rawJson);
+            metrics.recordTime(CompilerMetrics.Phase.PARSE, System.nanoTime() - start);
+            return result;
+        }
+    }
 
-            return empty;
+    /**
+     * Same as {@link #parse(String)} for raw UTF-8 output, avoiding the String round-trip.
+     */
+    @JsonIgnore public static CompilationResult parse(byte[] rawJson) throws IOException {
+        return parse(rawJson, CompilerMetrics.NOOP);
+    }
+
+    /**
+     * Same as {@link #parse(String, CompilerMetrics)} for raw UTF-8 output.
+     */
+    @JsonIgnore public static CompilationResult parse(byte[] rawJson, CompilerMetrics metrics) throws IOException {
+        if(rawJson == null || rawJson.length == 0){
+            return empty();
         } else {
-            return new ObjectMapper().readValue(rawJson, CompilationResult.class);
+            long start = System.nanoTime();
+            CompilationResult result = READER.readValue(rawJson);
+            metrics.recordTime(CompilerMetrics.Phase.PARSE, System.nanoTime() - start);
+            return result;
+        }
+    }
+
+    /**
+     * Combines the contracts of several results, e.g. of independently compiled source trees.
+     * Contracts are keyed by source path, so results of distinct sources never collide.
+     */
+    @JsonIgnore public static CompilationResult merge(Collection<CompilationResult> results) {
+        Map<String, ContractMetadata> contracts = new LinkedHashMap<>();
+        String version = "";
+        for (CompilationResult result : results) {
+            if (result.contracts != null) {
+                contracts.putAll(result.contracts);
+            }
+            if (version.isEmpty() && result.version != null) {
+                version = result.version;
+            }
+        }
+        return new CompilationResult(contracts, version);
+    }
+
+    private static CompilationResult empty() {
+        CompilationResult empty = new CompilationResult();
+        empty.contracts = Collections.emptyMap();
+        empty.version = "";
+
+        return empty;
+    }
+
+    /**
+     * Parses combined-json output as it is read from the stream, without buffering the whole document.
+     * Contract fields not listed in {@code fields} (and the per-source {@code ast-json} sections) are
+     * skipped by the parser, so they never reach the heap.
+     *
+     * @param fields output options to keep, e.g. {@link SolidityCompiler.Options#ABI}; all when empty
+     */
+    @JsonIgnore public static CompilationResult parse(InputStream stream, SolidityCompiler.Option... fields) throws IOException {
+        Set<String> wanted = new HashSet<>();
+        for (SolidityCompiler.Option field : fields) {
+            wanted.add(field.getName());
+        }
+
+        CompilationResult result = new CompilationResult(new LinkedHashMap<>(), "");
+        try (JsonParser parser = MAPPER.getFactory().createParser(stream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return result;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("contracts".equals(field)) {
+                    parseContracts(parser, result.contracts, wanted);
+                } else if ("version".equals(field)) {
+                    result.version = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void parseContracts(JsonParser parser, Map<String, ContractMetadata> contracts, Set<String> wanted) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            ContractMetadata metadata = new ContractMetadata();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (!wanted.isEmpty() && !wanted.contains(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "abi":
+                        metadata.abi = valueAsString(parser);
+                        break;
+                    case "bin":
+                        metadata.bin = valueAsString(parser);
+                        break;
+                    case "interface":
+                        metadata.solInterface = valueAsString(parser);
+                        break;
+                    case "metadata":
+                        metadata.metadata = valueAsString(parser);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            contracts.put(key, metadata);
+        }
+    }
+
+    /**
+     * Like {@link #parse(InputStream, SolidityCompiler.Option...)}, but every contract field is written
+     * straight to {@code outputDir/<contract key>/<field>} (and the per-source AST to
+     * {@code outputDir/sources/<source>.ast.json}) as the parser reaches it. Of the returned
+     * contracts, only the fields of {@link ContractMetadata} are held in memory; every other field,
+     * and the ASTs, are only on disk, see {@link FileContractMetadata#getArtifact(String)}.
+     *
+     * @param fields output options to keep, e.g. {@link SolidityCompiler.Options#ABI}; all when empty
+     */
+    @JsonIgnore public static CompilationResult parse(InputStream stream, File outputDir, SolidityCompiler.Option... fields) throws IOException {
+        Set<String> wanted = new HashSet<>();
+        for (SolidityCompiler.Option field : fields) {
+            wanted.add(field.getName());
+        }
+        Path dir = outputDir.toPath();
+        Files.createDirectories(dir);
+
+        CompilationResult result = new CompilationResult(new LinkedHashMap<>(), "");
+        try (JsonParser parser = MAPPER.getFactory().createParser(stream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return result;
+            }
+            Set<String> usedNames = new HashSet<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("contracts".equals(field)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String key = parser.getCurrentName();
+                        parser.nextToken();
+                        Path contractDir = dir.resolve(uniqueFileName(key, usedNames));
+                        Files.createDirectories(contractDir);
+                        FileContractMetadata metadata = new FileContractMetadata(contractDir);
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String contractField = parser.getCurrentName();
+                            parser.nextToken();
+                            if (!wanted.isEmpty() && !wanted.contains(contractField)) {
+                                parser.skipChildren();
+                                continue;
+                            }
+                            Path file = contractDir.resolve(contractField);
+                            switch (contractField) {
+                                case "abi":
+                                    metadata.abi = writeText(valueAsString(parser), file);
+                                    break;
+                                case "bin":
+                                    metadata.bin = writeText(valueAsString(parser), file);
+                                    break;
+                                case "interface":
+                                    metadata.solInterface = writeText(valueAsString(parser), file);
+                                    break;
+                                case "metadata":
+                                    metadata.metadata = writeText(valueAsString(parser), file);
+                                    break;
+                                default:
+                                    writeValue(parser, file);
+                            }
+                        }
+                        result.contracts.put(key, metadata);
+                    }
+                } else if ("sources".equals(field)) {
+                    Path sourcesDir = dir.resolve("sources");
+                    Files.createDirectories(sourcesDir);
+                    Set<String> usedSourceNames = new HashSet<>();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        Path astFile = sourcesDir.resolve(uniqueFileName(parser.getCurrentName(), usedSourceNames) + ".ast.json");
+                        parser.nextToken();
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String sourceField = parser.getCurrentName();
+                            parser.nextToken();
+                            if ("AST".equals(sourceField) || "ast".equals(sourceField)) {
+                                writeValue(parser, astFile);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    }
+                } else if ("version".equals(field)) {
+                    result.version = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String uniqueFileName(String key, Set<String> used) {
+        String base = key.replaceAll("[^A-Za-z0-9._-]", "_");
+        String name = base;
+        for (int i = 2; !used.add(name); i++) {
+            name = base + "-" + i;
         }
+        return name;
+    }
+
+    /**
+     * Writes the current value through a file channel: strings as their raw text, structures as json.
+     */
+    private static void writeValue(JsonParser parser, Path file) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (parser.getCurrentToken().isStructStart()) {
+                try (JsonGenerator generator = MAPPER.getFactory().createGenerator(Channels.newOutputStream(channel))) {
+                    generator.copyCurrentStructure(parser);
+                }
+            } else {
+                ByteBuffer bytes = UTF_8.encode(CharBuffer.wrap(
+                        parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength()));
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the value, written to the file unless it is {@code null}
+     */
+    private static String writeText(String value, Path file) throws IOException {
+        if (value != null) {
+            Files.write(file, value.getBytes(UTF_8));
+        }
+        return value;
+    }
+
+    private static String valueAsString(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken().isStructStart()) {
+            // newer compilers emit the abi as json rather than as a string
+            return parser.readValueAsTree().toString();
+        }
+        return parser.getValueAsString();
     }
 
     /**
@@ -84,16 +386,40 @@ public class CompilationResult {
         } else if (contractName == null || contractName.isEmpty()) {
             throw new UnsupportedOperationException("Source contains more than 1 contact. Please specify the contract name. Available keys (" + getContractKeys() + ").");
         }
-        for (Map.Entry<String, ContractMetadata> entry : contracts.entrySet()) {
-            String key = entry.getKey();
-            String name = key.substring(key.lastIndexOf(':') + 1);
-            if (contractName.equals(name)) {
-                return entry.getValue();
-            }
+        List<ContractMetadata> found = nameIndex().get(contractName);
+        if (found != null) {
+            return found.get(0);
         }
         throw new UnsupportedOperationException("No contract found with name '" + contractName + "'. Please specify a valid contract name. Available keys (" + getContractKeys() + ").");
     }
 
+    /**
+     * @param contractName The contract name
+     * @return all contracts with the given name, in the order of their keys; empty if there is none
+     */
+    @JsonIgnore public List<ContractMetadata> getContracts(String contractName) {
+        List<ContractMetadata> found = nameIndex().get(contractName);
+        return found == null ? Collections.<ContractMetadata>emptyList() : found;
+    }
+
+    private Map<String, List<ContractMetadata>> nameIndex() {
+        Map<String, List<ContractMetadata>> index = nameIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (Map.Entry<String, ContractMetadata> entry : contracts.entrySet()) {
+                String key = entry.getKey();
+                String name = key.substring(key.lastIndexOf(':') + 1);
+                // same name may come from several paths, keep them all in key order
+                index.computeIfAbsent(name, k -> new ArrayList<>(1)).add(entry.getValue());
+            }
+            for (Map.Entry<String, List<ContractMetadata>> entry : index.entrySet()) {
+                entry.setValue(Collections.unmodifiableList(entry.getValue()));
+            }
+            nameIndex = index;
+        }
+        return index;
+    }
+
     /**
      * @param contractPath The contract path
      * @param contractName The contract name
@@ -104,17 +430,23 @@ public class CompilationResult {
     }
 
     /**
-     * @return all contracts from this compilation result
+     * @return unmodifiable view of all contracts from this compilation result
      */
     @JsonIgnore public List<ContractMetadata> getContracts() {
-        return new ArrayList<>(contracts.values());
+        if (contractList == null) {
+            contractList = Collections.unmodifiableList(new ArrayList<>(contracts.values()));
+        }
+        return contractList;
     }
 
     /**
-     * @return all keys from this compilation result
+     * @return unmodifiable view of all keys from this compilation result
      */
     @JsonIgnore public List<String> getContractKeys() {
-        return new ArrayList<>(contracts.keySet());
+        if (contractKeyList == null) {
+            contractKeyList = Collections.unmodifiableList(new ArrayList<>(contracts.keySet()));
+        }
+        return contractKeyList;
     }
 
     @JsonIgnoreProperties(ignoreUnknown = true)
@@ -124,6 +456,56 @@ public class CompilationResult {
         public String solInterface;
         public String metadata;
 
+        // decoded forms, each published together with the string it was decoded from so a
+        // reader never pairs a new string with an old decoding
+        @JsonIgnore private volatile Decoded<byte[]> binBytes;
+        @JsonIgnore private volatile Decoded<JsonNode> abiJson;
+
+        /**
+         * @return bytecode decoded from {@link #bin} on first access; the array is shared and must not be modified
+         * @throws org.spongycastle.util.encoders.DecoderException if the bytecode has unlinked library placeholders
+         */
+        @JsonIgnore public byte[] getBinBytes() {
+            String bin = getBin();
+            if (bin == null) {
+                return null;
+            }
+            Decoded<byte[]> decoded = binBytes;
+            if (decoded == null || decoded.source != bin) {
+                decoded = new Decoded<>(bin, Hex.decode(bin));
+                binBytes = decoded;
+            }
+            return decoded.value;
+        }
+
+        /**
+         * @return {@link #abi} parsed on first access
+         */
+        @JsonIgnore public JsonNode getAbiJson() throws IOException {
+            String abi = getAbi();
+            if (abi == null) {
+                return null;
+            }
+            Decoded<JsonNode> decoded = abiJson;
+            if (decoded == null || decoded.source != abi) {
+                decoded = new Decoded<>(abi, MAPPER.readTree(abi));
+                abiJson = decoded;
+            }
+            return decoded.value;
+        }
+
+        public String getAbi() {
+            return abi;
+        }
+
+        public String getBin() {
+            return bin;
+        }
+
+        public String getMetadata() {
+            return metadata;
+        }
+
         public String getInterface() {
             return solInterface;
         }
@@ -132,4 +514,41 @@ public class CompilationResult {
             this.solInterface = solInterface;
         }
     }
+
+    private static final class Decoded<T> {
+        private final String source;
+        private final T value;
+
+        private Decoded(String source, T value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Contract written to disk by {@link #parse(InputStream, File, SolidityCompiler.Option...)}. Its
+     * {@link ContractMetadata} fields are set like for any other result; the remaining fields are
+     * only found in its artifact files.
+     */
+    public static class FileContractMetadata extends ContractMetadata {
+        private final Path dir;
+
+        FileContractMetadata(Path dir) {
+            this.dir = dir;
+        }
+
+        /**
+         * @return directory holding one file per output field of the contract
+         */
+        @JsonIgnore public Path getArtifactDir() {
+            return dir;
+        }
+
+        /**
+         * @return file of the given combined-json field, e.g. {@code bin-runtime}; it may not exist
+         */
+        @JsonIgnore public Path getArtifact(String field) {
+            return dir.resolve(field);
+        }
+    }
 }
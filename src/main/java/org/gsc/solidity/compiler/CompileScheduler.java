@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gsc.config.SystemProperties;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs compilations with bounded concurrency.
+ *
+ * At most {@code maxConcurrent} jobs run at once, the rest wait in a queue of
+ * {@code queueCapacity} entries where {@link Priority#INTERACTIVE} jobs overtake
+ * {@link Priority#BATCH} ones (FIFO within a priority). A full queue is handled
+ * according to the {@link RejectionPolicy}.
+ */
+@Slf4j
+public class CompileScheduler {
+
+    public enum Priority {
+        INTERACTIVE,
+        BATCH
+    }
+
+    public enum RejectionPolicy {
+        /**
+         * fail the returned future with {@link RejectedExecutionException}
+         */
+        ABORT,
+        /**
+         * run the job in the submitting thread
+         */
+        CALLER_RUNS,
+        /**
+         * block the submitting thread until there is room in the queue
+         */
+        BLOCK
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore queueSlots;
+    private final RejectionPolicy rejectionPolicy;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // indexed by priority ordinal
+    private final AtomicLongArray completed = new AtomicLongArray(Priority.values().length);
+    private final AtomicLongArray callerRuns = new AtomicLongArray(Priority.values().length);
+    private final AtomicLongArray totalWaitNanos = new AtomicLongArray(Priority.values().length);
+    private final AtomicLongArray maxWaitNanos = new AtomicLongArray(Priority.values().length);
+    private final AtomicLongArray totalRunNanos = new AtomicLongArray(Priority.values().length);
+    private final AtomicLongArray maxRunNanos = new AtomicLongArray(Priority.values().length);
+
+    public CompileScheduler(SystemProperties config) {
+        this(config.getSolcSchedulerMaxConcurrent(), config.getSolcSchedulerQueueCapacity(),
+                RejectionPolicy.valueOf(config.getSolcSchedulerRejectionPolicy().toUpperCase().replace('-', '_')));
+    }
+
+    public CompileScheduler(int maxConcurrent, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, "solc-scheduler-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.queueSlots = new Semaphore(queueCapacity);
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * @see SolidityCompiler#compileSrc(byte[], boolean, boolean, SolidityCompiler.Option...)
+     */
+    public CompletableFuture<SolidityCompiler.Result> compile(SolidityCompiler compiler, Priority priority, byte[] source,
+                                                              boolean optimize, boolean combinedJson,
+                                                              SolidityCompiler.Option... options) {
+        return submit(priority, () -> compiler.compileSrc(source, optimize, combinedJson, options));
+    }
+
+    /**
+     * Queues any compilation job. Cancelling the future of a queued job removes it from the queue
+     * and frees its slot right away.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Callable<T> task) {
+        Job<T> job = new Job<>(priority, sequence.getAndIncrement(), task);
+        if (!queueSlots.tryAcquire()) {
+            switch (rejectionPolicy) {
+                case CALLER_RUNS:
+                    job.run(false);
+                    return job.future;
+                case BLOCK:
+                    try {
+                        queueSlots.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        job.future.completeExceptionally(e);
+                        return job.future;
+                    }
+                    break;
+                default:
+                    rejected.incrementAndGet();
+                    job.future.completeExceptionally(new RejectedExecutionException(
+                            "Compile queue is full (" + queued.get() + " jobs waiting)"));
+                    return job.future;
+            }
+        }
+        queued.incrementAndGet();
+        executor.execute(job);
+        job.future.whenComplete((result, e) -> {
+            // a worker may take the job concurrently, whoever removes it gives the slot back
+            if (job.future.isCancelled() && executor.remove(job)) {
+                queued.decrementAndGet();
+                queueSlots.release();
+            }
+        });
+        return job.future;
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return jobs finished, including the ones run by the submitting thread
+     */
+    public long getCompleted(Priority priority) {
+        return completed.get(priority.ordinal());
+    }
+
+    /**
+     * @return jobs run by the submitting thread under {@link RejectionPolicy#CALLER_RUNS}
+     */
+    public long getCallerRuns(Priority priority) {
+        return callerRuns.get(priority.ordinal());
+    }
+
+    /**
+     * @return average queue wait of jobs run by the workers, caller-run jobs never wait
+     */
+    public double getAverageWaitMillis(Priority priority) {
+        long count = completed.get(priority.ordinal()) - callerRuns.get(priority.ordinal());
+        return count <= 0 ? 0 : totalWaitNanos.get(priority.ordinal()) / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis(Priority priority) {
+        return maxWaitNanos.get(priority.ordinal()) / 1e6;
+    }
+
+    public double getAverageRunMillis(Priority priority) {
+        long count = completed.get(priority.ordinal());
+        return count == 0 ? 0 : totalRunNanos.get(priority.ordinal()) / 1e6 / count;
+    }
+
+    public double getMaxRunMillis(Priority priority) {
+        return maxRunNanos.get(priority.ordinal()) / 1e6;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void updateMax(AtomicLongArray max, int index, long value) {
+        long current;
+        while ((current = max.get(index)) < value && !max.compareAndSet(index, current, value)) {
+            // retry
+        }
+    }
+
+    private class Job<T> implements Runnable, Comparable<Job<?>> {
+        private final Priority priority;
+        private final long sequence;
+        private final Callable<T> task;
+        private final long submittedAt = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Job(Priority priority, long sequence, Callable<T> task) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            queued.decrementAndGet();
+            queueSlots.release();
+            run(true);
+        }
+
+        private void run(boolean queued) {
+            if (future.isDone()) {
+                // cancelled while waiting
+                return;
+            }
+            int index = priority.ordinal();
+            long startedAt = System.nanoTime();
+            if (queued) {
+                totalWaitNanos.addAndGet(index, startedAt - submittedAt);
+                updateMax(maxWaitNanos, index, startedAt - submittedAt);
+            }
+            running.incrementAndGet();
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = task.call();
+            } catch (Throwable e) {
+                failure = e;
+            }
+            // metrics first, so they already include this job when the caller sees the result
+            running.decrementAndGet();
+            long runNanos = System.nanoTime() - startedAt;
+            totalRunNanos.addAndGet(index, runNanos);
+            updateMax(maxRunNanos, index, runNanos);
+            if (!queued) {
+                callerRuns.incrementAndGet(index);
+            }
+            completed.incrementAndGet(index);
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int cmp = priority.compareTo(other.priority);
+            return cmp != 0 ? cmp : Long.compare(sequence, other.sequence);
+        }
+    }
+}
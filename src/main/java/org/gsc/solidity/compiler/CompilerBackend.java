@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Runs solc command lines on behalf of {@link SolidityCompiler}. Chosen with {@code solc.backend}:
+ * <ul>
+ *     <li>{@code process}: a new solc process per compilation</li>
+ *     <li>{@code pooled}: warm processes from a {@link SolcProcessPool}</li>
+ *     <li>{@code cached}: {@link CachedBackend} in front of one of the above</li>
+ *     <li>{@code replay}: {@link ReplayBackend}, answering from recorded outputs without running solc</li>
+ *     <li>the class name of an implementation with a public no-arg constructor</li>
+ * </ul>
+ */
+public interface CompilerBackend {
+
+    /**
+     * Prepares one solc run; the backend may start solc right away or only once input arrives.
+     *
+     * @param commandParts solc command line, executable first
+     * @param selfContained {@code true} if the output depends only on the command line and the input,
+     *                      {@code false} if solc reads sources named on the command line from disk
+     */
+    Invocation start(List<String> commandParts, boolean selfContained, CompilerMetrics metrics) throws IOException;
+
+    interface Invocation {
+
+        /**
+         * Feeds the input to solc, lets the handler consume stdout and blocks until solc is done.
+         *
+         * @param input stdin content, {@code null} to just close stdin
+         * @param timeoutMillis wall-clock limit, {@code 0} for none
+         */
+        <T> Completion<T> run(byte[] input, OutputHandler<T> handler, long timeoutMillis) throws IOException;
+
+        /**
+         * Aborts the run, killing solc if it is running.
+         */
+        void destroy();
+    }
+
+    interface OutputHandler<T> {
+        T handle(InputStream stdout) throws IOException;
+    }
+
+    class Completion<T> {
+        public final T output;
+        public final String errors;
+        public final int exitCode;
+        public final boolean timedOut;
+
+        public Completion(T output, String errors, int exitCode, boolean timedOut) {
+            this.output = output;
+            this.errors = errors;
+            this.exitCode = exitCode;
+            this.timedOut = timedOut;
+        }
+    }
+}
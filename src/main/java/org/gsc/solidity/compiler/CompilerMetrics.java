@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+/**
+ * Receives timings and counters of solc invocations, see {@link SolidityCompiler#setMetrics}.
+ * Implementations are called from compiling threads concurrently and must be thread safe and cheap.
+ * All methods default to doing nothing.
+ */
+public interface CompilerMetrics {
+
+    CompilerMetrics NOOP = new CompilerMetrics() {
+    };
+
+    enum Phase {
+        /** starting solc, or taking a warm process from the pool */
+        SPAWN,
+        /** writing the source to solc's stdin */
+        STDIN_WRITE,
+        /** from the end of the input until solc exits */
+        RUN,
+        /** reading solc's stdout until EOF, overlapping {@link #RUN}, and its stderr */
+        DRAIN,
+        /** parsing the JSON output into results, overlapping {@link #DRAIN} when streamed */
+        PARSE
+    }
+
+    default void recordTime(Phase phase, long nanos) {
+    }
+
+    default void recordOutputSize(long stdoutBytes, long stderrBytes) {
+    }
+
+    default void recordExitCode(int exitCode) {
+    }
+
+    default void recordTimeout() {
+    }
+}
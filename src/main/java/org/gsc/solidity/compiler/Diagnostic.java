@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single error or warning reported by solc, e.g.
+ * {@code contract.sol:2:5: Warning: No visibility specified. Defaulting to "public".}
+ */
+public class Diagnostic {
+
+    public enum Severity {
+        ERROR, WARNING
+    }
+
+    // [file:line:column: ]Type: message, Type being Warning or some kind of error
+    private static final Pattern HEADER = Pattern.compile("^(?:(.+?):(\\d+):(\\d+): )?(Warning|\\w*Error|\\w*Exception): (.*)$");
+
+    private final Severity severity;
+    private final String sourceFile;
+    private final int line;
+    private final int column;
+    private final String type;
+    private final String message;
+
+    Diagnostic(Severity severity, String sourceFile, int line, int column, String type, String message) {
+        this.severity = severity;
+        this.sourceFile = sourceFile;
+        this.line = line;
+        this.column = column;
+        this.type = type;
+        this.message = message;
+    }
+
+    /**
+     * Reads solc's stderr line by line. Only the header line of each diagnostic is kept; the
+     * source excerpt and caret lines following it are skipped.
+     */
+    public static List<Diagnostic> parse(Reader errors) throws IOException {
+        List<Diagnostic> diagnostics = new ArrayList<>();
+        BufferedReader reader = errors instanceof BufferedReader ? (BufferedReader) errors : new BufferedReader(errors);
+        String text;
+        while ((text = reader.readLine()) != null) {
+            Diagnostic diagnostic = parseHeader(text);
+            if (diagnostic != null) {
+                diagnostics.add(diagnostic);
+            }
+        }
+        return diagnostics;
+    }
+
+    public static List<Diagnostic> parse(String errors) {
+        if (errors == null || errors.isEmpty()) {
+            return Collections.emptyList();
+        }
+        try {
+            return parse(new StringReader(errors));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the diagnostic headed by the line, {@code null} if it is not a diagnostic header
+     */
+    static Diagnostic parseHeader(String text) {
+        Matcher matcher = HEADER.matcher(text);
+        if (!matcher.matches()) {
+            return null;
+        }
+        String type = matcher.group(4);
+        boolean located = matcher.group(1) != null;
+        return new Diagnostic("Warning".equals(type) ? Severity.WARNING : Severity.ERROR,
+                matcher.group(1),
+                located ? Integer.parseInt(matcher.group(2)) : 0,
+                located ? Integer.parseInt(matcher.group(3)) : 0,
+                type, matcher.group(5));
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public boolean isError() {
+        return severity == Severity.ERROR;
+    }
+
+    /**
+     * @return source the diagnostic points into, {@code null} for general diagnostics
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * @return 1-based line, {@code 0} if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return 1-based column, {@code 0} if unknown
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return solc's error type, e.g. {@code ParserError}, {@code TypeError} or {@code Warning}
+     */
+    public String getType() {
+        return type;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return (sourceFile != null ? sourceFile + ":" + line + ":" + column + ": " : "") + type + ": " + message;
+    }
+}
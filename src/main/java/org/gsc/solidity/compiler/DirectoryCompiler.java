@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Compiles every {@code .sol} file below a directory. Files are grouped into the connected
+ * components of their import graph; each component is compiled with one
+ * {@link SolidityCompiler#compileBatch(java.util.Collection, boolean, SolidityCompiler.Option...)} call
+ * and independent components run in parallel on a fork-join pool.
+ */
+@Slf4j
+public class DirectoryCompiler implements AutoCloseable {
+
+    private final SolidityCompiler compiler;
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+
+    /**
+     * Runs the components on a pool of its own, shut down by {@link #close()}.
+     */
+    public DirectoryCompiler(SolidityCompiler compiler) {
+        this(compiler, new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    /**
+     * Runs the components on the given pool, which {@link #close()} leaves alone.
+     */
+    public DirectoryCompiler(SolidityCompiler compiler, ForkJoinPool pool) {
+        this(compiler, pool, false);
+    }
+
+    private DirectoryCompiler(SolidityCompiler compiler, ForkJoinPool pool, boolean ownsPool) {
+        this.compiler = compiler;
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+    }
+
+    /**
+     * @return results keyed by absolute source path; {@link BatchResult#getCombinedResult()} merges them
+     */
+    public BatchResult compile(File sourceDirectory, boolean optimize, SolidityCompiler.Option... options) throws IOException {
+        Path root = sourceDirectory.toPath().toAbsolutePath().normalize();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            files = walk.filter(path -> path.toString().endsWith(".sol") && Files.isRegularFile(path))
+                    .sorted()
+                    .collect(toList());
+        }
+        List<List<File>> components = components(compiler.getSolcDirectory().toPath(), files);
+        logger.debug("Compiling {} sources of {} in {} independent groups", files.size(), root, components.size());
+
+        try {
+            return pool.invoke(new CompileTask(components, optimize, options));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Groups the files by the connected components of their import graph, ignoring the direction
+     * of imports. Imports that don't point to one of the files are left to solc to report. Files are
+     * only read for their imports here and not kept, solc reads them again itself.
+     *
+     * @param solcDirectory working directory of solc, see {@link #resolveImport(Path, Path, String)}
+     */
+    static List<List<File>> components(Path solcDirectory, List<Path> files) throws IOException {
+        Map<Path, Integer> index = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            index.put(files.get(i), i);
+        }
+        int[] parent = new int[files.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            for (String dependency : new SourceArtifact(file.toFile()).getDependencies()) {
+                Integer imported = index.get(resolveImport(solcDirectory, file, dependency));
+                if (imported != null) {
+                    parent[find(parent, i)] = find(parent, imported);
+                }
+            }
+        }
+
+        Map<Integer, List<File>> components = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            components.computeIfAbsent(find(parent, i), k -> new ArrayList<>()).add(files.get(i).toFile());
+        }
+        return new ArrayList<>(components.values());
+    }
+
+    /**
+     * Resolves like solc does for the absolute source names passed by
+     * {@link SolidityCompiler#compileBatch(java.util.Collection, boolean, SolidityCompiler.Option...)}:
+     * the unit name comes from {@link StandardJson#resolveImport(String, String)} and solc reads a
+     * unit name that isn't absolute from its working directory.
+     */
+    static Path resolveImport(Path solcDirectory, Path file, String dependency) {
+        Path unit = Paths.get(StandardJson.resolveImport(file.toString(), dependency));
+        return unit.isAbsolute() ? unit.normalize() : solcDirectory.resolve(unit).normalize();
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private class CompileTask extends RecursiveTask<BatchResult> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<File>> components;
+        private final boolean optimize;
+        private final SolidityCompiler.Option[] options;
+
+        CompileTask(List<List<File>> components, boolean optimize, SolidityCompiler.Option[] options) {
+            this.components = components;
+            this.optimize = optimize;
+            this.options = options;
+        }
+
+        @Override
+        protected BatchResult compute() {
+            if (components.isEmpty()) {
+                return new BatchResult();
+            }
+            if (components.size() == 1) {
+                try {
+                    return compiler.compileBatch(components.get(0), optimize, options);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            // split in halves, idle workers steal the forked half
+            int middle = components.size() / 2;
+            CompileTask left = new CompileTask(components.subList(0, middle), optimize, options);
+            left.fork();
+            BatchResult result = new CompileTask(components.subList(middle, components.size()), optimize, options).compute();
+            BatchResult combined = left.join();
+            combined.addAll(result);
+            return combined;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory {@link CompilerMetrics} keeping a histogram per phase and per output stream, and
+ * counts of exit codes and timeouts. Recording is lock free.
+ */
+public class HistogramMetrics implements CompilerMetrics {
+
+    /**
+     * Histogram with power-of-two buckets: percentiles are exact to within a factor of two,
+     * which is plenty to spot a regression, at a fixed cost of 65 counters.
+     */
+    public static class Histogram {
+        private final LongAdder[] buckets = new LongAdder[65];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            value = Math.max(0, value);
+            buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0 : (double) getSum() / n;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return upper bound of the bucket holding the percentile, capped by the maximum
+         */
+        public long getPercentile(double percentile) {
+            long n = getCount();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(percentile / 100 * n);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    long upper = i == 0 ? 0 : i == 64 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upper, getMax());
+                }
+            }
+            return getMax();
+        }
+    }
+
+    private final Map<Phase, Histogram> times = new EnumMap<>(Phase.class);
+    private final Histogram stdoutBytes = new Histogram();
+    private final Histogram stderrBytes = new Histogram();
+    private final Map<Integer, LongAdder> exitCodes = new ConcurrentHashMap<>();
+    private final LongAdder timeouts = new LongAdder();
+
+    public HistogramMetrics() {
+        for (Phase phase : Phase.values()) {
+            times.put(phase, new Histogram());
+        }
+    }
+
+    @Override
+    public void recordTime(Phase phase, long nanos) {
+        times.get(phase).record(nanos);
+    }
+
+    @Override
+    public void recordOutputSize(long stdoutBytes, long stderrBytes) {
+        this.stdoutBytes.record(stdoutBytes);
+        this.stderrBytes.record(stderrBytes);
+    }
+
+    @Override
+    public void recordExitCode(int exitCode) {
+        exitCodes.computeIfAbsent(exitCode, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void recordTimeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * @return durations of the phase in nanoseconds
+     */
+    public Histogram getTimes(Phase phase) {
+        return times.get(phase);
+    }
+
+    public Histogram getStdoutBytes() {
+        return stdoutBytes;
+    }
+
+    public Histogram getStderrBytes() {
+        return stderrBytes;
+    }
+
+    /**
+     * @return number of solc runs per exit code
+     */
+    public Map<Integer, Long> getExitCodes() {
+        Map<Integer, Long> counts = new TreeMap<>();
+        exitCodes.forEach((code, count) -> counts.put(code, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+}
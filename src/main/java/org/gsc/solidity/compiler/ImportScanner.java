@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Single pass scanner for import directives in all their forms: {@code import "p";},
+ * {@code import "p" as A;}, {@code import * as A from "p";} and {@code import {A, B as C} from "p";},
+ * with either quote. Comments and string literals are skipped, so an import that is commented out
+ * is neither a dependency nor stripped on flattening.
+ */
+final class ImportScanner {
+
+    interface Visitor {
+        /**
+         * @param start index of the {@code import} keyword
+         * @param end index after the closing {@code ;}
+         * @param pathStart index after the opening quote of the imported path
+         * @param pathEnd index of the closing quote
+         */
+        void onImport(int start, int end, int pathStart, int pathEnd);
+    }
+
+    private ImportScanner() {
+    }
+
+    static void scan(CharSequence src, Visitor visitor) {
+        int length = src.length();
+        int i = 0;
+        while (i < length) {
+            char c = src.charAt(i);
+            if (c == '/' && i + 1 < length && src.charAt(i + 1) == '/') {
+                i = skipLine(src, i + 2);
+            } else if (c == '/' && i + 1 < length && src.charAt(i + 1) == '*') {
+                i = skipBlockComment(src, i + 2);
+            } else if (c == '"' || c == '\'') {
+                i = skipString(src, i + 1, c);
+            } else if (c == 'i' && isWord(src, i, "import")) {
+                i = scanImport(src, i, visitor);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * ASCII view of UTF-8 bytes. Every byte of a multi-byte character is above 0x7f, so keywords,
+     * quotes and comment markers are found at their byte offsets without decoding the buffer.
+     */
+    static CharSequence asciiView(ByteBuffer bytes) {
+        return new CharSequence() {
+            @Override public int length() { return bytes.limit(); }
+            @Override public char charAt(int index) { return (char) (bytes.get(index) & 0xff); }
+            @Override public CharSequence subSequence(int start, int end) {
+                ByteBuffer slice = bytes.duplicate();
+                slice.position(start);
+                slice.limit(end);
+                return asciiView(slice.slice());
+            }
+        };
+    }
+
+    private static int scanImport(CharSequence src, int start, Visitor visitor) {
+        int i = skipWhitespace(src, start + "import".length());
+        boolean aliased = i < src.length() && !isQuote(src.charAt(i));
+        if (aliased) {
+            // import * as A from "p"; import A as B from "p"; import {A, B as C} from "p";
+            int from = -1;
+            while (i < src.length() && isSymbolClause(src.charAt(i))) {
+                if (isWord(src, i, "from")) {
+                    from = i;
+                }
+                i++;
+            }
+            if (from < 0 || skipWhitespace(src, from + "from".length()) != i
+                    || i >= src.length() || !isQuote(src.charAt(i))) {
+                return start + "import".length();
+            }
+        }
+        if (i >= src.length() || !isQuote(src.charAt(i))) {
+            return start + "import".length();
+        }
+        char quote = src.charAt(i);
+        int pathStart = i + 1;
+        int pathEnd = pathStart;
+        while (pathEnd < src.length() && src.charAt(pathEnd) != quote && src.charAt(pathEnd) != '\n') {
+            pathEnd++;
+        }
+        if (pathEnd >= src.length() || src.charAt(pathEnd) != quote) {
+            return pathStart;
+        }
+        i = skipWhitespace(src, pathEnd + 1);
+        if (!aliased && isWord(src, i, "as")) {
+            // import "p" as A;
+            i = skipWhitespace(src, i + "as".length());
+            int alias = i;
+            while (i < src.length() && isIdentifierPart(src.charAt(i))) {
+                i++;
+            }
+            if (i == alias) {
+                return pathEnd + 1;
+            }
+            i = skipWhitespace(src, i);
+        }
+        if (i >= src.length() || src.charAt(i) != ';') {
+            return pathEnd + 1;
+        }
+        visitor.onImport(start, i + 1, pathStart, pathEnd);
+        return i + 1;
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '\'';
+    }
+
+    private static boolean isSymbolClause(char c) {
+        return isIdentifierPart(c) || Character.isWhitespace(c) || c == '*' || c == '{' || c == '}' || c == ',';
+    }
+
+    private static boolean isWord(CharSequence src, int i, String word) {
+        int end = i + word.length();
+        if (end > src.length() || (i > 0 && isIdentifierPart(src.charAt(i - 1)))) {
+            return false;
+        }
+        for (int k = 0; k < word.length(); k++) {
+            if (src.charAt(i + k) != word.charAt(k)) {
+                return false;
+            }
+        }
+        return end == src.length() || !isIdentifierPart(src.charAt(end));
+    }
+
+    private static int skipWhitespace(CharSequence src, int i) {
+        while (i < src.length() && Character.isWhitespace(src.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipLine(CharSequence src, int i) {
+        while (i < src.length() && src.charAt(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipBlockComment(CharSequence src, int i) {
+        while (i + 1 < src.length() && !(src.charAt(i) == '*' && src.charAt(i + 1) == '/')) {
+            i++;
+        }
+        return Math.min(i + 2, src.length());
+    }
+
+    private static int skipString(CharSequence src, int i, char quote) {
+        while (i < src.length() && src.charAt(i) != quote && src.charAt(i) != '\n') {
+            i += src.charAt(i) == '\\' ? 2 : 1;
+        }
+        return Math.min(i + 1, src.length());
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return c == '_' || c == '$' || Character.isLetterOrDigit(c);
+    }
+}
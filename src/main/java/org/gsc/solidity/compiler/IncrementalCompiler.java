@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gsc.utils.Sha256Hash;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Compile session for a watch loop: every call to {@link #compile(Collection)} recompiles only the
+ * sources whose content changed since the previous call plus everything importing them, directly or
+ * transitively. All other sources keep the {@link CompilationResult} of the previous call.
+ * <p>
+ * Each source is compiled with its imports inlined, see {@link SourceArtifact#plainSource()}.
+ */
+@Slf4j
+public class IncrementalCompiler {
+
+    public enum Cause {
+        /** source was not part of the previous compile */
+        ADDED,
+        /** source content changed */
+        MODIFIED,
+        /** source itself is unchanged, but something it imports changed */
+        DEPENDENCY_CHANGED,
+        /** source failed to compile last time */
+        PREVIOUSLY_FAILED
+    }
+
+    public static class Reason {
+        private final Cause cause;
+        private final String trigger;
+
+        Reason(Cause cause, String trigger) {
+            this.cause = cause;
+            this.trigger = trigger;
+        }
+
+        public Cause getCause() {
+            return cause;
+        }
+
+        /**
+         * @return the changed source that made this one stale; the source itself unless
+         * the cause is {@link Cause#DEPENDENCY_CHANGED}
+         */
+        public String getTrigger() {
+            return trigger;
+        }
+
+        @Override
+        public String toString() {
+            return cause == Cause.DEPENDENCY_CHANGED ? cause + " (" + trigger + ")" : cause.toString();
+        }
+    }
+
+    public static class Report {
+        private final Map<String, Reason> recompiled = new LinkedHashMap<>();
+        private final Set<String> reused = new HashSet<>();
+        private final Set<String> removed = new HashSet<>();
+        private final Map<String, String> errors = new LinkedHashMap<>();
+        private final Map<String, CompilationResult> results = new LinkedHashMap<>();
+
+        /**
+         * @return sources compiled by this call with the reason why, in dependency order
+         */
+        public Map<String, Reason> getRecompiled() {
+            return Collections.unmodifiableMap(recompiled);
+        }
+
+        /**
+         * @return sources whose previous result was reused
+         */
+        public Set<String> getReused() {
+            return Collections.unmodifiableSet(reused);
+        }
+
+        /**
+         * @return sources of the previous call missing from this one
+         */
+        public Set<String> getRemoved() {
+            return Collections.unmodifiableSet(removed);
+        }
+
+        /**
+         * @return solc errors of the sources that failed to compile
+         */
+        public Map<String, String> getErrors() {
+            return Collections.unmodifiableMap(errors);
+        }
+
+        public boolean isFailed() {
+            return !errors.isEmpty();
+        }
+
+        /**
+         * @return result for the source, {@code null} if it failed to compile
+         */
+        public CompilationResult getResult(String sourceName) {
+            return results.get(sourceName);
+        }
+
+        public Map<String, CompilationResult> getResults() {
+            return Collections.unmodifiableMap(results);
+        }
+    }
+
+    private final SolidityCompiler compiler;
+    private final boolean optimize;
+    private final SolidityCompiler.Option[] options;
+
+    // state of the last compile; a source without a result failed and is retried next time
+    private final Map<String, Sha256Hash> hashes = new HashMap<>();
+    private final Map<String, CompilationResult> results = new HashMap<>();
+
+    public IncrementalCompiler(SolidityCompiler compiler, boolean optimize, SolidityCompiler.Option... options) {
+        this.compiler = compiler;
+        this.optimize = optimize;
+        this.options = options;
+    }
+
+    /**
+     * Resolves the imports of {@code sources} and brings the session up to date with them.
+     *
+     * @throws ContractException if an import can't be resolved or the imports form a cycle
+     */
+    public synchronized Report compile(Collection<SourceArtifact> sources) throws IOException {
+        Sources graph = new Sources(sources);
+        graph.resolveDependencies();
+
+        Report report = new Report();
+        Map<String, Sha256Hash> currentHashes = new HashMap<>();
+        for (SourceArtifact artifact : sources) {
+            currentHashes.put(artifact.getName(), Sha256Hash.of(artifact.getSource().getBytes(UTF_8)));
+        }
+        for (String name : hashes.keySet()) {
+            if (!currentHashes.containsKey(name)) {
+                report.removed.add(name);
+            }
+        }
+
+        Map<String, Reason> stale = new HashMap<>();
+        Deque<SourceArtifact> changed = new ArrayDeque<>();
+        for (SourceArtifact artifact : sources) {
+            String name = artifact.getName();
+            Sha256Hash previous = hashes.get(name);
+            Cause cause = previous == null ? Cause.ADDED
+                    : !previous.equals(currentHashes.get(name)) ? Cause.MODIFIED
+                    : !results.containsKey(name) ? Cause.PREVIOUSLY_FAILED
+                    : null;
+            if (cause != null) {
+                stale.put(name, new Reason(cause, name));
+                changed.add(artifact);
+            }
+        }
+        // walk the reverse import edges: whatever imports a stale source is stale as well
+        while (!changed.isEmpty()) {
+            SourceArtifact artifact = changed.poll();
+            String trigger = stale.get(artifact.getName()).getTrigger();
+            for (SourceArtifact dependent : artifact.getDependentArtifacts()) {
+                if (!stale.containsKey(dependent.getName())) {
+                    stale.put(dependent.getName(), new Reason(Cause.DEPENDENCY_CHANGED, trigger));
+                    changed.add(dependent);
+                }
+            }
+        }
+
+        hashes.keySet().retainAll(currentHashes.keySet());
+        results.keySet().retainAll(currentHashes.keySet());
+        // a stale result must not outlive a compile aborted by IOException; the hash of a source
+        // moves on only once its new result (or failure) is stored, so an aborted source stays stale
+        results.keySet().removeAll(stale.keySet());
+
+        for (SourceArtifact artifact : graph.topologicalOrder()) {
+            String name = artifact.getName();
+            Reason reason = stale.get(name);
+            if (reason == null) {
+                report.reused.add(name);
+                report.results.put(name, results.get(name));
+                continue;
+            }
+            report.recompiled.put(name, reason);
+            try {
+                CompilationResult result = compiler.compileSrcToResult(
+                        artifact.plainSource().getBytes(UTF_8), optimize, options);
+                results.put(name, result);
+                report.results.put(name, result);
+            } catch (ContractException e) {
+                report.errors.put(name, e.getMessage());
+            }
+            hashes.put(name, currentHashes.get(name));
+        }
+
+        logger.debug("Incremental compile: {} recompiled {}, {} reused, {} removed",
+                report.recompiled.size(), report.recompiled, report.reused.size(), report.removed);
+        return report;
+    }
+
+    /**
+     * Forgets all previous results; the next {@link #compile(Collection)} compiles everything.
+     */
+    public synchronized void reset() {
+        hashes.clear();
+        results.clear();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Starts a new solc process for every compilation.
+ */
+class ProcessBackend implements CompilerBackend {
+
+    private final Solc solc;
+
+    ProcessBackend(Solc solc) {
+        this.solc = solc;
+    }
+
+    @Override
+    public Invocation start(List<String> commandParts, boolean selfContained, CompilerMetrics metrics) throws IOException {
+        long start = System.nanoTime();
+        SolcProcess process = SolcProcess.start(solc.processBuilder(commandParts));
+        metrics.recordTime(CompilerMetrics.Phase.SPAWN, System.nanoTime() - start);
+        return process.withMetrics(metrics);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Deterministic in-memory stand-in for solc, e.g. to load test services depending on the compiler
+ * without forking processes. Outputs are replayed from recordings: a {@link CompilationCache}
+ * directory filled by the {@code cached} backend with the same solc version and options.
+ * Runs without a recording succeed with no contracts.
+ */
+public class ReplayBackend implements CompilerBackend {
+
+    private final CompilationCache recordings;
+    private final String solcVersion;
+
+    public ReplayBackend(CompilationCache recordings, String solcVersion) {
+        this.recordings = recordings;
+        this.solcVersion = solcVersion;
+    }
+
+    @Override
+    public Invocation start(List<String> commandParts, boolean selfContained, CompilerMetrics metrics) {
+        return new Invocation() {
+            @Override
+            public <T> Completion<T> run(byte[] input, OutputHandler<T> handler, long timeoutMillis) throws IOException {
+                SolidityCompiler.Result recorded = recordings.get(CachedBackend.key(commandParts, input, solcVersion));
+                if (recorded == null) {
+                    recorded = new SolidityCompiler.Result("", emptyOutput(commandParts), true);
+                }
+                return CachedBackend.replay(recorded, handler);
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+    }
+
+    private String emptyOutput(List<String> commandParts) {
+        return commandParts.contains("--standard-json")
+                ? "{\"contracts\":{},\"sources\":{},\"errors\":[]}"
+                : "{\"contracts\":{},\"version\":\"" + solcVersion + "\"}";
+    }
+}
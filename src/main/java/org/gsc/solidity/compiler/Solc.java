@@ -18,14 +18,36 @@
 package org.gsc.solidity.compiler;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
 import java.util.Scanner;
+import java.util.jar.JarEntry;
+import java.util.stream.Stream;
 
 import lombok.extern.slf4j.Slf4j;
 import org.gsc.config.SystemProperties;
+import org.gsc.solcJ.SolcVersion;
+import org.gsc.utils.Sha256Hash;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 /**
  * Created by Anton Nashatyrev on 03.03.2016.
@@ -34,8 +56,11 @@ import org.gsc.config.SystemProperties;
 @Slf4j
 public class Solc {
 
+    private static final String MANIFEST = "extracted.properties";
+
     private File solc = null;
     private String solcVersion = null;
+    private long memoryLimit = 0;
 
     Solc(SystemProperties config) {
         try {
@@ -45,11 +70,20 @@ public class Solc {
         }
     }
 
-    private void init(SystemProperties config) throws IOException {
-        if (null != config.getSolcVersion()){
-            solcVersion = "0.4.25";
+    /**
+     * Bundled compiler of the given version, regardless of {@code solc.path}.
+     */
+    Solc(String version) {
+        solcVersion = version;
+        try {
+            initBundled();
+        } catch (IOException e) {
+            throw new RuntimeException("Can't init solc compiler " + version + ": ", e);
         }
-        solcVersion = config.getSolcVersion();
+    }
+
+    private void init(SystemProperties config) throws IOException {
+        solcVersion = config.getSolcVersion() != null ? config.getSolcVersion() : SolcVersion.VERSION;
 
         if (config != null && config.getCustomSolcPath() != null) {
             solc = new File(config.getCustomSolcPath());
@@ -64,30 +98,176 @@ public class Solc {
         }
     }
 
+    /**
+     * Extracts the bundled compiler into {@code java.io.tmpdir/solc/<os>-v<version>-<fingerprint>}.
+     *
+     * The directory is reused across JVM restarts as long as the extracted files keep the size and
+     * modification time recorded at extraction. Extraction goes into a temporary directory which is
+     * renamed into place, under a file lock, so JVMs sharing the tmpdir never see partial files.
+     */
     private void initBundled() throws IOException {
-        File tmpDir = new File(System.getProperty("java.io.tmpdir"), "solc");
-        tmpDir.mkdirs();
+        String resourceDir = "/native/" + getOS() + "/v" + solcVersion + "/";
+        List<String> files = readFileList(resourceDir);
+        if (files.isEmpty()) {
+            throw new RuntimeException("No bundled solc files found in " + resourceDir);
+        }
+
+        File baseDir = new File(System.getProperty("java.io.tmpdir"), "solc");
+        baseDir.mkdirs();
+        String name = getOS() + "-v" + solcVersion + "-" + fingerprint(resourceDir, files);
+        File targetDir = new File(baseDir, name);
+
+        synchronized (Solc.class) {
+            // the file lock only guards against other JVMs, threads of this one are serialized above
+            try (FileChannel lockChannel = FileChannel.open(new File(baseDir, name + ".lock").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    if (isExtracted(targetDir, files)) {
+                        logger.debug("Reusing solc extracted in {}", targetDir);
+                    } else {
+                        extract(resourceDir, files, baseDir, targetDir);
+                    }
+                } finally {
+                    lock.release();
+                }
+            }
+        }
 
-        InputStream is = getClass().getResourceAsStream("/native/" + getOS() + "/v" + solcVersion + "/file.list");
-        System.out.println("/native/" + getOS() + "/file.list");
+        // first file in the list denotes executable
+        solc = new File(targetDir, files.get(0));
+        solc.setExecutable(true);
+    }
+
+    private List<String> readFileList(String resourceDir) {
+        List<String> files = new ArrayList<>();
+        InputStream is = getClass().getResourceAsStream(resourceDir + "file.list");
+        if (is == null) {
+            return files;
+        }
         try (Scanner scanner = new Scanner(is)) {
             while (scanner.hasNext()) {
-                String s = scanner.next();
-                File targetFile = new File(tmpDir, s);
-                InputStream fis = getClass().getResourceAsStream("/native/" + getOS() + "/v" + solcVersion + "/" + s);
-                System.out.println("/native/" + getOS() + "/v" + solcVersion + "/" + s);
-                Files.copy(fis, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                if (solc == null) {
-                    // first file in the list denotes executable
-                    solc = targetFile;
-                    solc.setExecutable(true);
-                }
-                targetFile.deleteOnExit();
+                files.add(scanner.next());
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @return hash over names and stamps of the bundled resources, see {@link #stamp(URL)}. Jar
+     *         timestamps are left out on purpose: a redeploy of the same compiler maps to the same
+     *         directory instead of leaving a new one behind in the tmpdir every time.
+     */
+    private String fingerprint(String resourceDir, List<String> files) throws IOException {
+        MessageDigest digest = Sha256Hash.newDigest();
+        for (String file : files) {
+            URL url = getClass().getResource(resourceDir + file);
+            if (url == null) {
+                throw new RuntimeException("Bundled solc file is missing: " + resourceDir + file);
             }
+            digest.update(file.getBytes(UTF_8));
+            digest.update((byte) 0);
+            digest.update(stamp(url));
+            digest.update((byte) 0);
         }
+        return Sha256Hash.wrap(digest.digest()).toString().substring(0, 16);
     }
 
-    private String getOS() {
+    /**
+     * Identifies the content of a resource without reading it: size and CRC of a jar entry come
+     * from the jar's central directory, a file on disk is taken by size and modification time.
+     * Content of any other kind of resource is hashed.
+     */
+    private static byte[] stamp(URL url) throws IOException {
+        if ("jar".equals(url.getProtocol())) {
+            JarEntry entry = ((JarURLConnection) url.openConnection()).getJarEntry();
+            return (entry.getSize() + ":" + Long.toHexString(entry.getCrc())).getBytes(UTF_8);
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return stamp(Paths.get(url.toURI()).toFile()).getBytes(UTF_8);
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid resource URL " + url, e);
+            }
+        }
+        MessageDigest digest = Sha256Hash.newDigest();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = url.openStream()) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private boolean isExtracted(File dir, List<String> files) throws IOException {
+        File manifest = new File(dir, MANIFEST);
+        if (!manifest.isFile()) {
+            return false;
+        }
+        Properties extracted = new Properties();
+        try (InputStream in = new FileInputStream(manifest)) {
+            extracted.load(in);
+        }
+        for (String file : files) {
+            File target = new File(dir, file);
+            String expected = extracted.getProperty(file);
+            if (expected == null || !target.isFile() || !expected.equals(stamp(target))) {
+                logger.warn("Extracted solc file {} was changed, extracting again", target);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stamp(File extracted) {
+        return extracted.length() + ":" + extracted.lastModified();
+    }
+
+    private void extract(String resourceDir, List<String> files, File baseDir, File targetDir) throws IOException {
+        Path tmpDir = Files.createTempDirectory(baseDir.toPath(), targetDir.getName() + ".tmp");
+        Properties extracted = new Properties();
+        for (String file : files) {
+            Path target = tmpDir.resolve(file);
+            try (InputStream fis = getClass().getResourceAsStream(resourceDir + file)) {
+                Files.copy(fis, target);
+            }
+            logger.debug("Extracted {}{} to {}", resourceDir, file, target);
+            extracted.setProperty(file, stamp(target.toFile()));
+        }
+        // manifest goes last, a directory without it is never trusted; the rename below keeps
+        // the modification times it records
+        try (OutputStream out = Files.newOutputStream(tmpDir.resolve(MANIFEST))) {
+            extracted.store(out, "size:mtime of extracted solc files");
+        }
+
+        if (targetDir.exists()) {
+            deleteRecursively(targetDir.toPath());
+        }
+        try {
+            Files.move(tmpDir, targetDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmpDir, targetDir.toPath());
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if this jar contains a compiler of the given version for the current OS
+     */
+    static boolean isBundled(String version) {
+        return Solc.class.getResource("/native/" + getOS() + "/v" + version + "/file.list") != null;
+    }
+
+    private static String getOS() {
         String osName = System.getProperty("os.name").toLowerCase();
         if (osName.contains("win")) {
             return "win";
@@ -103,4 +283,42 @@ public class Solc {
     public File getExecutable() {
         return solc;
     }
+
+    public String getVersion() {
+        return solcVersion;
+    }
+
+    /**
+     * Caps the virtual memory of spawned solc processes, on Linux only.
+     *
+     * @param bytes limit, {@code 0} for none
+     */
+    void setMemoryLimit(long bytes) {
+        if (bytes > 0 && !"linux".equals(getOS())) {
+            logger.warn("solc memory limit is only supported on Linux, ignored");
+            return;
+        }
+        this.memoryLimit = bytes;
+    }
+
+    /**
+     * @return process builder running the given command line next to the solc executable
+     */
+    ProcessBuilder processBuilder(List<String> commandParts) throws IOException {
+        List<String> command = commandParts;
+        if (memoryLimit > 0) {
+            // the shell applies the limit and replaces itself with solc, so no extra process is left around
+            command = new ArrayList<>();
+            command.add("/bin/sh");
+            command.add("-c");
+            command.add("ulimit -v " + Math.max(1, memoryLimit / 1024) + " && exec \"$@\"");
+            command.add("solc");
+            command.addAll(commandParts);
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(command)
+                .directory(solc.getParentFile());
+        processBuilder.environment().put("LD_LIBRARY_PATH",
+                solc.getParentFile().getCanonicalPath());
+        return processBuilder;
+    }
 }
@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import com.google.common.io.CountingInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.gsc.solidity.compiler.CompilerBackend.Completion;
+import org.gsc.solidity.compiler.CompilerBackend.OutputHandler;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.spi.AbstractInterruptibleChannel;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A started solc process together with the file its stderr is redirected to.
+ *
+ * Redirecting stderr to a file leaves stdout as the only pipe to drain, so a compilation is
+ * carried out by a single thread: it writes the source, reads stdout until EOF and then
+ * collects the exit code and the diagnostics.
+ *
+ * A caller blocked on the pipes can't see its own interrupt, so every pipe operation is entered as
+ * an interruptible channel operation: interrupting the caller closes the channel, which kills solc
+ * and so unblocks the pipe.
+ *
+ * Every started process is tracked until it is reaped, so processes still running when the JVM
+ * shuts down are killed rather than left behind. Command lines never fork: solc is either started
+ * directly or {@code exec}'d by the shell applying its memory limit, see {@link Solc#processBuilder}.
+ */
+@Slf4j
+class SolcProcess implements CompilerBackend.Invocation {
+
+    private static final Set<SolcProcess> LIVE = ConcurrentHashMap.newKeySet();
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "solc-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (SolcProcess process : LIVE) {
+                process.destroy();
+            }
+        }, "solc-process-shutdown"));
+    }
+
+    private final Process process;
+    private final File errorsFile;
+    private volatile boolean timedOut;
+    private volatile boolean interrupted;
+    private CompilerMetrics metrics = CompilerMetrics.NOOP;
+
+    private SolcProcess(Process process, File errorsFile) {
+        this.process = process;
+        this.errorsFile = errorsFile;
+    }
+
+    static SolcProcess start(ProcessBuilder processBuilder) throws IOException {
+        File errorsFile = File.createTempFile("solc", ".err");
+        try {
+            SolcProcess process = new SolcProcess(processBuilder.redirectError(errorsFile).start(), errorsFile);
+            LIVE.add(process);
+            return process;
+        } catch (IOException e) {
+            errorsFile.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * Reports the phases of the upcoming {@code run} to the given metrics.
+     */
+    SolcProcess withMetrics(CompilerMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Feeds the input to the process and blocks until it exits.
+     *
+     * @param input stdin content, {@code null} to just close stdin
+     */
+    SolidityCompiler.Result run(byte[] input) throws IOException {
+        return run(input, 0);
+    }
+
+    /**
+     * Same as {@link #run(byte[])}, killing the process once {@code timeoutMillis} elapsed.
+     *
+     * @param timeoutMillis wall-clock limit, {@code 0} for none
+     * @return failed result with {@link SolidityCompiler.Result#isTimedOut()} set if the limit was hit
+     */
+    SolidityCompiler.Result run(byte[] input, long timeoutMillis) throws IOException {
+        Completion<String> completion = run(input, SolcProcess::readFully, timeoutMillis);
+        if (completion.timedOut) {
+            return SolidityCompiler.Result.timedOut(completion.errors);
+        }
+        return new SolidityCompiler.Result(completion.errors, completion.output, completion.exitCode == 0);
+    }
+
+    /**
+     * Feeds the input to the process, lets the handler consume stdout and blocks until the process exits.
+     *
+     * @param input stdin content, {@code null} to just close stdin
+     */
+    <T> Completion<T> run(byte[] input, OutputHandler<T> handler) throws IOException {
+        return run(input, handler, 0);
+    }
+
+    /**
+     * Same as {@link #run(byte[], OutputHandler)}, killing the process once {@code timeoutMillis}
+     * elapsed. A killed process yields a {@link Completion#timedOut} completion without output,
+     * whatever the handler made of the truncated stdout. Interrupting the calling thread kills the
+     * process as well and fails the run with a {@link RuntimeException} caused by
+     * {@link InterruptedException}, leaving the thread interrupted.
+     *
+     * @param timeoutMillis wall-clock limit, {@code 0} for none
+     */
+    @Override
+    public <T> Completion<T> run(byte[] input, OutputHandler<T> handler, long timeoutMillis) throws IOException {
+        ScheduledFuture<?> watchdog = timeoutMillis > 0
+                ? WATCHDOG.schedule(this::expire, timeoutMillis, TimeUnit.MILLISECONDS)
+                : null;
+        KillOnInterrupt killOnInterrupt = new KillOnInterrupt();
+        try {
+            IOException writeError = null;
+            long writeStart = System.nanoTime();
+            try (OutputStream stdin = process.getOutputStream()) {
+                if (input != null) {
+                    killOnInterrupt.enter();
+                    try {
+                        stdin.write(input);
+                    } finally {
+                        killOnInterrupt.exit();
+                    }
+                }
+            } catch (IOException e) {
+                // solc exited before reading all of its input, e.g. killed by its memory limit
+                writeError = e;
+            }
+            if (interrupted) {
+                throw new InterruptedException("solc killed, calling thread interrupted");
+            }
+            long runStart = System.nanoTime();
+            metrics.recordTime(CompilerMetrics.Phase.STDIN_WRITE, runStart - writeStart);
+            T output = null;
+            CountingInputStream stdout = new CountingInputStream(killOnInterrupt.wrap(process.getInputStream()));
+            try {
+                if (writeError == null) {
+                    output = handler.handle(stdout);
+                }
+                // whatever the handler left unread must not block the process
+                byte[] rest = new byte[8192];
+                while (stdout.read(rest) != -1) {
+                    // discard
+                }
+            } finally {
+                stdout.close();
+            }
+            long drainTime = System.nanoTime() - runStart;
+            if (interrupted) {
+                throw new InterruptedException("solc killed, calling thread interrupted");
+            }
+            int exitCode = process.waitFor();
+            metrics.recordTime(CompilerMetrics.Phase.RUN, System.nanoTime() - runStart);
+            if (timedOut) {
+                return timedOut(timeoutMillis, exitCode);
+            }
+            metrics.recordExitCode(exitCode);
+            if (writeError != null && exitCode == 0) {
+                throw writeError;
+            }
+            long stderrStart = System.nanoTime();
+            byte[] stderr = Files.readAllBytes(errorsFile.toPath());
+            metrics.recordTime(CompilerMetrics.Phase.DRAIN, drainTime + System.nanoTime() - stderrStart);
+            metrics.recordOutputSize(stdout.getCount(), stderr.length);
+            String errors = new String(stderr, UTF_8);
+
+            return new Completion<>(output, errors, exitCode, false);
+        } catch (InterruptedException e) {
+            destroy();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (IOException | RuntimeException e) {
+            destroy();
+            if (interrupted) {
+                // broken pipe or truncated output of the process killed on interrupt
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(new InterruptedException("solc killed, calling thread interrupted"));
+            }
+            if (timedOut) {
+                // broken pipe or truncated output of the killed process
+                return timedOut(timeoutMillis, -1);
+            }
+            throw e;
+        } finally {
+            if (watchdog != null) {
+                watchdog.cancel(false);
+            }
+            LIVE.remove(this);
+            errorsFile.delete();
+        }
+    }
+
+    /**
+     * Interruptible channel guarding the blocking pipe operations of a run. A thread interrupted
+     * while inside {@link #enter()} and {@link #exit()}, or entering them already interrupted,
+     * closes the channel, and closing it kills the process.
+     */
+    private final class KillOnInterrupt extends AbstractInterruptibleChannel {
+
+        void enter() {
+            begin();
+        }
+
+        void exit() throws AsynchronousCloseException {
+            end(true);
+        }
+
+        InputStream wrap(InputStream in) {
+            return new FilterInputStream(in) {
+                @Override
+                public int read() throws IOException {
+                    enter();
+                    try {
+                        return super.read();
+                    } finally {
+                        exit();
+                    }
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    enter();
+                    try {
+                        return super.read(b, off, len);
+                    } finally {
+                        exit();
+                    }
+                }
+            };
+        }
+
+        @Override
+        protected void implCloseChannel() {
+            SolcProcess.this.interrupted = true;
+            process.destroyForcibly();
+        }
+    }
+
+    private void expire() {
+        timedOut = true;
+        process.destroyForcibly();
+    }
+
+    private <T> Completion<T> timedOut(long timeoutMillis, int exitCode) {
+        logger.warn("solc killed after running for {} ms", timeoutMillis);
+        metrics.recordTimeout();
+        return new Completion<>(null, "solc didn't finish in " + timeoutMillis + " ms", exitCode, true);
+    }
+
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    @Override
+    public void destroy() {
+        process.destroyForcibly();
+        LIVE.remove(this);
+        errorsFile.delete();
+    }
+
+    static String readFully(InputStream stream) throws IOException {
+        StringBuilder content = new StringBuilder();
+        char[] buffer = new char[8192];
+        Reader reader = new InputStreamReader(stream, UTF_8);
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            content.append(buffer, 0, read);
+        }
+        return content.toString();
+    }
+}
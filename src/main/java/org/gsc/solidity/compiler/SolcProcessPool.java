@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of warm solc processes for stdin based compilation.
+ *
+ * solc reads the whole source from stdin and exits on EOF, so a process can serve exactly one
+ * compilation and is recycled right after it. What the pool saves is the spawn and dynamic
+ * linking cost: for every command line seen recently it keeps {@code size} processes started
+ * ahead of time and blocked on stdin, hands one out per compilation and spawns the replacement
+ * in the background. Standby processes which died or idled longer than {@code maxIdleMillis}
+ * are dropped by a periodic health check.
+ *
+ * As a {@link CompilerBackend} it serves self-contained runs from the pool; runs reading sources
+ * from disk get a fresh process, since a standby one would have read the files too early.
+ */
+@Slf4j
+class SolcProcessPool implements CompilerBackend {
+
+    /**
+     * Upper bound of distinct command lines (i.e. option sets) kept warm at the same time.
+     */
+    private static final int MAX_COMMAND_LINES = 16;
+
+    private final Solc solc;
+    private final int size;
+    private final long maxIdleMillis;
+
+    private final ScheduledExecutorService spawner;
+    private final Map<List<String>, Slot> slots = new LinkedHashMap<List<String>, Slot>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, Slot> eldest) {
+            if (size() > MAX_COMMAND_LINES) {
+                eldest.getValue().destroy();
+                return true;
+            }
+            return false;
+        }
+    };
+    private boolean closed;
+
+    SolcProcessPool(Solc solc, int size, long maxIdleMillis, long healthCheckMillis) {
+        this.solc = solc;
+        this.size = size;
+        this.maxIdleMillis = maxIdleMillis;
+        this.spawner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "solc-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        spawner.scheduleWithFixedDelay(this::checkHealth, healthCheckMillis, healthCheckMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "solc-pool-shutdown"));
+    }
+
+    @Override
+    public Invocation start(List<String> commandParts, boolean selfContained, CompilerMetrics metrics) throws IOException {
+        long start = System.nanoTime();
+        SolcProcess process = selfContained ? acquire(commandParts) : SolcProcess.start(solc.processBuilder(commandParts));
+        metrics.recordTime(CompilerMetrics.Phase.SPAWN, System.nanoTime() - start);
+        return process.withMetrics(metrics);
+    }
+
+    /**
+     * @return a started solc process for the given command line; a standby one if available
+     */
+    SolcProcess acquire(List<String> commandParts) throws IOException {
+        List<String> key = new ArrayList<>(commandParts);
+        Standby standby;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("solc process pool is closed");
+            }
+            Slot slot = slots.computeIfAbsent(key, k -> new Slot());
+            standby = slot.poll(maxIdleMillis);
+            scheduleRefill(key, slot);
+        }
+        return standby != null ? standby.process : SolcProcess.start(solc.processBuilder(commandParts));
+    }
+
+    private void scheduleRefill(List<String> key, Slot slot) {
+        while (slot.ready.size() + slot.pending < size) {
+            slot.pending++;
+            spawner.execute(() -> spawn(key, slot));
+        }
+    }
+
+    private void spawn(List<String> key, Slot slot) {
+        SolcProcess process = null;
+        try {
+            process = SolcProcess.start(solc.processBuilder(key));
+        } catch (IOException e) {
+            logger.warn("Can't spawn standby solc process", e);
+        }
+        synchronized (this) {
+            slot.pending--;
+            if (process == null) {
+                return;
+            }
+            if (closed || slots.get(key) != slot) {
+                process.destroy();
+            } else {
+                slot.ready.addLast(new Standby(process));
+            }
+        }
+    }
+
+    private synchronized void checkHealth() {
+        for (Map.Entry<List<String>, Slot> entry : slots.entrySet()) {
+            Slot slot = entry.getValue();
+            if (slot.evictUnhealthy(maxIdleMillis) > 0) {
+                scheduleRefill(entry.getKey(), slot);
+            }
+        }
+    }
+
+    /**
+     * Destroys all standby processes; processes already handed out are left to their callers.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        spawner.shutdownNow();
+        for (Slot slot : slots.values()) {
+            slot.destroy();
+        }
+        slots.clear();
+    }
+
+    private static class Slot {
+        private final Deque<Standby> ready = new ArrayDeque<>();
+        private int pending;
+
+        private Standby poll(long maxIdleMillis) {
+            Standby standby;
+            while ((standby = ready.pollFirst()) != null) {
+                if (standby.isHealthy(maxIdleMillis)) {
+                    return standby;
+                }
+                standby.process.destroy();
+            }
+            return null;
+        }
+
+        private int evictUnhealthy(long maxIdleMillis) {
+            int evicted = 0;
+            for (Iterator<Standby> it = ready.iterator(); it.hasNext(); ) {
+                Standby standby = it.next();
+                if (!standby.isHealthy(maxIdleMillis)) {
+                    standby.process.destroy();
+                    it.remove();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+
+        private void destroy() {
+            for (Standby standby : ready) {
+                standby.process.destroy();
+            }
+            ready.clear();
+        }
+    }
+
+    private static class Standby {
+        private final SolcProcess process;
+        private final long spawnedAt = System.currentTimeMillis();
+
+        private Standby(SolcProcess process) {
+            this.process = process;
+        }
+
+        private boolean isHealthy(long maxIdleMillis) {
+            return process.isAlive() && (maxIdleMillis <= 0 || System.currentTimeMillis() - spawnedAt < maxIdleMillis);
+        }
+    }
+}
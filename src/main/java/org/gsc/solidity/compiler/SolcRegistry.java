@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gsc.config.SystemProperties;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.gsc.solidity.compiler.ContractException.compilationError;
+
+/**
+ * Compilers for every bundled solc version listed in {@code solc.versions}.
+ *
+ * A {@link SolidityCompiler} is materialized per version on first use, so compilations for
+ * different versions run side by side in one JVM; each version is limited to
+ * {@code solc.versionMaxConcurrent} concurrent compilations. The version for a source is the
+ * newest available one satisfying its {@code pragma solidity} line.
+ */
+@Slf4j
+public class SolcRegistry {
+
+    private static final Pattern PRAGMA = Pattern.compile("pragma\\s+solidity\\s+([^;]+);");
+    // operator and version are matched together, as pragmas write both ">=0.4.22" and ">= 0.4.22"
+    private static final Pattern COMPARATOR = Pattern.compile("(\\^|~|>=|<=|>|<|=)?\\s*v?(\\d+(?:\\.\\d+){0,2})");
+
+    private final SystemProperties config;
+    private final List<String> versions;
+    private final Map<String, Entry> compilers = new ConcurrentHashMap<>();
+
+    public SolcRegistry(SystemProperties config) {
+        this.config = config;
+        List<String> available = new ArrayList<>();
+        if (config.getCustomSolcPath() != null) {
+            // a custom executable has a single, configured version
+            available.add(config.getSolcVersion());
+        } else {
+            for (String version : config.getSolcVersions()) {
+                if (Solc.isBundled(version)) {
+                    available.add(version);
+                } else {
+                    logger.warn("solc {} is not bundled for this OS, skipping it", version);
+                }
+            }
+        }
+        available.sort((a, b) -> compareVersions(parseVersion(a), parseVersion(b)));
+        this.versions = Collections.unmodifiableList(available);
+    }
+
+    /**
+     * @return usable versions, oldest first
+     */
+    public List<String> getAvailableVersions() {
+        return versions;
+    }
+
+    /**
+     * @return compiler of the given version, created on first request
+     */
+    public SolidityCompiler getCompiler(String version) {
+        return getEntry(version).compiler;
+    }
+
+    /**
+     * @return compiler of the version selected by the source's pragma
+     */
+    public SolidityCompiler getCompilerFor(byte[] source) {
+        return getCompiler(selectVersion(new String(source, UTF_8)));
+    }
+
+    /**
+     * @return the newest available version satisfying the source's {@code pragma solidity};
+     *         the configured {@code solc.version} (or the newest one) if there is no pragma
+     * @throws ContractException if no available version satisfies the pragma
+     */
+    public String selectVersion(String source) {
+        String constraint = pragmaConstraint(source);
+        if (constraint == null) {
+            String preferred = config.getSolcVersion();
+            return versions.contains(preferred) || versions.isEmpty() ? preferred : versions.get(versions.size() - 1);
+        }
+        for (int i = versions.size() - 1; i >= 0; i--) {
+            if (satisfies(parseVersion(versions.get(i)), constraint)) {
+                return versions.get(i);
+            }
+        }
+        throw compilationError("no available solc version %s satisfies pragma '%s'", versions, constraint);
+    }
+
+    /**
+     * Compiles the source with the version matching its pragma, waiting for a free slot of that version.
+     */
+    public SolidityCompiler.Result compile(byte[] source, boolean optimize, boolean combinedJson,
+                                           SolidityCompiler.Option... options) throws IOException {
+        Entry entry = getEntry(selectVersion(new String(source, UTF_8)));
+        try {
+            entry.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            return entry.compiler.compileSrc(source, optimize, combinedJson, options);
+        } finally {
+            entry.release();
+        }
+    }
+
+    /**
+     * Compiles the source on the executor of the version matching its pragma, once a slot of that
+     * version is free. No thread waits for the slot: the compilation is queued and started by
+     * whichever compilation frees it.
+     *
+     * @see SolidityCompiler#compileAsync(byte[], boolean, boolean, SolidityCompiler.Option...)
+     */
+    public CompletableFuture<SolidityCompiler.Result> compileAsync(byte[] source, boolean optimize, boolean combinedJson,
+                                                                   SolidityCompiler.Option... options) {
+        Entry entry = getEntry(selectVersion(new String(source, UTF_8)));
+        return entry.submit(() -> entry.compiler.compileAsync(source, optimize, combinedJson, options));
+    }
+
+    private Entry getEntry(String version) {
+        if (!versions.contains(version)) {
+            throw new IllegalArgumentException("solc " + version + " is not available, use one of " + versions);
+        }
+        return compilers.computeIfAbsent(version, v -> {
+            Solc solc = config.getCustomSolcPath() != null ? new Solc(config) : new Solc(v);
+            return new Entry(new SolidityCompiler(config, solc), new Semaphore(config.getSolcVersionMaxConcurrent()));
+        });
+    }
+
+    private static class Entry {
+        private final SolidityCompiler compiler;
+        private final Semaphore permits;
+        private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+        private Entry(SolidityCompiler compiler, Semaphore permits) {
+            this.compiler = compiler;
+            this.permits = permits;
+        }
+
+        /**
+         * Starts the compilation holding a permit, right away or once one is released. The permit
+         * is returned when the compilation completes; cancelling the returned future cancels it.
+         */
+        private CompletableFuture<SolidityCompiler.Result> submit(
+                Supplier<CompletableFuture<SolidityCompiler.Result>> compilation) {
+            CompletableFuture<SolidityCompiler.Result> future = new CompletableFuture<>();
+            waiting.add(() -> {
+                if (future.isDone()) {
+                    // cancelled while waiting for a permit
+                    release();
+                    return;
+                }
+                CompletableFuture<SolidityCompiler.Result> running;
+                try {
+                    running = compilation.get();
+                } catch (RuntimeException e) {
+                    release();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                future.whenComplete((result, e) -> {
+                    if (e != null) {
+                        running.cancel(true);
+                    }
+                });
+                running.whenComplete((result, e) -> {
+                    release();
+                    if (e != null) {
+                        future.completeExceptionally(e);
+                    } else {
+                        future.complete(result);
+                    }
+                });
+            });
+            startWaiting();
+            return future;
+        }
+
+        private void release() {
+            permits.release();
+            startWaiting();
+        }
+
+        private void startWaiting() {
+            // whoever adds a compilation or releases a permit tries next, so none is left waiting
+            // while a permit is free
+            while (!waiting.isEmpty() && permits.tryAcquire()) {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    permits.release();
+                } else {
+                    next.run();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return version constraint of the first {@code pragma solidity} outside comments, {@code null} if there is none
+     */
+    static String pragmaConstraint(String source) {
+        Matcher matcher = PRAGMA.matcher(stripComments(source));
+        return matcher.find() ? matcher.group(1).trim() : null;
+    }
+
+    /**
+     * Blanks out {@code //} and {@code /* *}{@code /} comments, leaving string literals alone.
+     */
+    static String stripComments(String source) {
+        StringBuilder ret = new StringBuilder(source.length());
+        int length = source.length();
+        int i = 0;
+        while (i < length) {
+            char c = source.charAt(i);
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                int end = source.indexOf('\n', i);
+                i = end < 0 ? length : end;
+                ret.append(' ');
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                ret.append(' ');
+            } else if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < length && source.charAt(end) != c && source.charAt(end) != '\n') {
+                    end += source.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 1, length);
+                ret.append(source, i, end);
+                i = end;
+            } else {
+                ret.append(c);
+                i++;
+            }
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Checks a version against a pragma constraint: comparator sets separated by {@code ||},
+     * each a list of {@code ^}, {@code ~}, {@code >=}, {@code >}, {@code <=}, {@code <},
+     * {@code =} or bare versions which all have to hold. Whitespace between an operator and its
+     * version is allowed, as in {@code >= 0.4.22 < 0.6.0}.
+     */
+    static boolean satisfies(int[] version, String constraint) {
+        for (String alternative : constraint.split("\\|\\|")) {
+            if (satisfiesAll(version, alternative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean satisfiesAll(int[] version, String comparators) {
+        Matcher matcher = COMPARATOR.matcher(comparators);
+        boolean all = true;
+        int end = 0;
+        while (matcher.find()) {
+            // anything but whitespace between comparators is not a constraint we understand
+            checkBlank(comparators, end, matcher.start());
+            end = matcher.end();
+            all &= satisfiesComparator(version, matcher);
+        }
+        checkBlank(comparators, end, comparators.length());
+        return all;
+    }
+
+    private static void checkBlank(String comparators, int start, int end) {
+        if (!comparators.substring(start, end).trim().isEmpty()) {
+            throw compilationError("unsupported pragma solidity comparator '%s'", comparators.substring(start, end).trim());
+        }
+    }
+
+    private static boolean satisfiesComparator(int[] version, Matcher matcher) {
+        String operator = matcher.group(1) == null ? "=" : matcher.group(1);
+        int[] bound = parseVersion(matcher.group(2));
+        int cmp = compareVersions(version, bound);
+        switch (operator) {
+            case "^":
+                // ^0.4.24 allows 0.4.x, ^1.2.3 allows 1.x.x
+                return cmp >= 0 && (bound[0] > 0 ? version[0] == bound[0] : version[0] == 0 && version[1] == bound[1]);
+            case "~":
+                return cmp >= 0 && version[0] == bound[0] && version[1] == bound[1];
+            case ">=":
+                return cmp >= 0;
+            case "<=":
+                return cmp <= 0;
+            case ">":
+                return cmp > 0;
+            case "<":
+                return cmp < 0;
+            default:
+                return cmp == 0;
+        }
+    }
+
+    static int[] parseVersion(String version) {
+        String[] parts = version.split("\\.");
+        int[] ret = new int[3];
+        for (int i = 0; i < ret.length && i < parts.length; i++) {
+            ret[i] = Integer.parseInt(parts[i]);
+        }
+        return ret;
+    }
+
+    private static int compareVersions(int[] a, int[] b) {
+        for (int i = 0; i < 3; i++) {
+            if (a[i] != b[i]) {
+                return Integer.compare(a[i], b[i]);
+            }
+        }
+        return 0;
+    }
+}
@@ -22,18 +22,34 @@ import org.gsc.config.SystemProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Serializable;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToLongFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
 @Slf4j
@@ -41,12 +57,106 @@ import static java.util.stream.Collectors.toList;
 public class SolidityCompiler {
 
     private Solc solc;
+    private CompilerBackend backend;
+    private CompilationCache cache;
+    private int asyncThreads;
+    private ExecutorService executor;
+    private int batchMaxSources;
+    private long batchMaxBytes;
+    private long timeoutMillis;
+    private volatile CompilerMetrics metrics = CompilerMetrics.NOOP;
+
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("solc-timeout"));
 
     private static SolidityCompiler INSTANCE;
 
     @Autowired
     public SolidityCompiler(SystemProperties config) {
-        solc = new Solc(config);
+        this(config, new Solc(config));
+    }
+
+    /**
+     * Compiler driving the given solc; backend, pooling, caching and executor settings come from config.
+     */
+    SolidityCompiler(SystemProperties config, Solc solc) {
+        this.solc = solc;
+        this.backend = createBackend(config, solc);
+        asyncThreads = config.getSolcAsyncThreads();
+        batchMaxSources = config.getSolcBatchMaxSources();
+        batchMaxBytes = config.getSolcBatchMaxBytes();
+        timeoutMillis = config.getSolcTimeoutMillis();
+        solc.setMemoryLimit(config.getSolcMemoryLimit());
+    }
+
+    private CompilerBackend createBackend(SystemProperties config, Solc solc) {
+        String name = config.getSolcBackend();
+        switch (name) {
+            case "process":
+                return new ProcessBackend(solc);
+            case "pooled":
+                return createPool(config, solc);
+            case "cached":
+                String cacheDir = config.getSolcCacheDir();
+                cache = new CompilationCache(config.getSolcCacheSize() > 0 ? config.getSolcCacheSize() : 256,
+                        cacheDir == null ? null : new File(cacheDir));
+                CompilerBackend delegate = config.getSolcPoolSize() > 0 ? createPool(config, solc) : new ProcessBackend(solc);
+                return new CachedBackend(delegate, cache, solc.getVersion());
+            case "replay":
+                String replayDir = config.getSolcReplayDir();
+                CompilationCache recordings = new CompilationCache(config.getSolcCacheSize() > 0 ? config.getSolcCacheSize() : 1024,
+                        replayDir == null ? null : new File(replayDir));
+                return new ReplayBackend(recordings, solc.getVersion());
+            default:
+                try {
+                    return Class.forName(name).asSubclass(CompilerBackend.class).getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new RuntimeException("Unknown solc.backend: " + name, e);
+                }
+        }
+    }
+
+    private static SolcProcessPool createPool(SystemProperties config, Solc solc) {
+        return new SolcProcessPool(solc, config.getSolcPoolSize() > 0 ? config.getSolcPoolSize() : 2,
+                config.getSolcPoolMaxIdleMillis(), config.getSolcPoolHealthCheckMillis());
+    }
+
+    /**
+     * @return version of the solc this compiler drives
+     */
+    public String getSolcVersion() {
+        return solc.getVersion();
+    }
+
+    /**
+     * @return working directory of solc, which import paths that aren't absolute nor relative are read from
+     */
+    File getSolcDirectory() {
+        return solc.getExecutable().getParentFile();
+    }
+
+    /**
+     * Publishes per-phase timings, output sizes and exit codes of all compilations from now on.
+     * Raw output parsed by the caller is timed by passing {@link #getMetrics()} to
+     * {@link CompilationResult#parse(String, CompilerMetrics)}.
+     */
+    public void setMetrics(CompilerMetrics metrics) {
+        this.metrics = metrics == null ? CompilerMetrics.NOOP : metrics;
+    }
+
+    public CompilerMetrics getMetrics() {
+        return metrics;
+    }
+
+    public CompilerBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * @return compilation cache or {@code null} unless the {@code cached} backend is used
+     */
+    public CompilationCache getCache() {
+        return cache;
     }
 
     public static Result compile(File sourceDirectory, boolean combinedJson, Option... options) throws IOException {
@@ -181,10 +291,16 @@ public class SolidityCompiler {
         }
     }
 
+    /**
+     * Outcome of a solc run. Whether it failed follows solc's exit code, so warnings alone never
+     * fail a compilation; {@link #getDiagnostics()} gives the parsed contents of {@link #errors}.
+     */
     public static class Result {
         public String errors;
         public String output;
         private boolean success;
+        private boolean timedOut;
+        private volatile List<Diagnostic> diagnostics;
 
         public Result(String errors, String output, boolean success) {
             this.errors = errors;
@@ -192,51 +308,41 @@ public class SolidityCompiler {
             this.success = success;
         }
 
+        /**
+         * Failed result of a compilation killed for exceeding its time limit.
+         */
+        static Result timedOut(String errors) {
+            Result result = new Result(errors, "", false);
+            result.timedOut = true;
+            return result;
+        }
+
         public boolean isFailed() {
             return !success;
         }
-    }
-
-    private static class ParallelReader extends Thread {
 
-        private InputStream stream;
-        private StringBuilder content = new StringBuilder();
-
-        ParallelReader(InputStream stream) {
-            this.stream = stream;
+        public boolean isTimedOut() {
+            return timedOut;
         }
 
-        public String getContent() {
-            return getContent(true);
+        /**
+         * @return errors and warnings reported by solc, parsed on first call
+         */
+        public List<Diagnostic> getDiagnostics() {
+            List<Diagnostic> parsed = diagnostics;
+            if (parsed == null) {
+                parsed = Collections.unmodifiableList(Diagnostic.parse(errors));
+                diagnostics = parsed;
+            }
+            return parsed;
         }
 
-        public synchronized String getContent(boolean waitForComplete) {
-            if (waitForComplete) {
-                while(stream != null) {
-                    try {
-                        wait();
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
-            }
-            return content.toString();
+        public List<Diagnostic> getWarnings() {
+            return getDiagnostics().stream().filter(d -> !d.isError()).collect(toList());
         }
 
-        public void run() {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    content.append(line).append("\n");
-                }
-            } catch (IOException ioe) {
-                ioe.printStackTrace();
-            } finally {
-                synchronized (this) {
-                    stream = null;
-                    notifyAll();
-                }
-            }
+        public boolean hasWarnings() {
+            return getDiagnostics().stream().anyMatch(d -> !d.isError());
         }
     }
 
@@ -255,44 +361,67 @@ public class SolidityCompiler {
      * @throws IOException
      */
     public Result compileSrc(File source, boolean optimize, boolean combinedJson, Option... options) throws IOException {
+        return compileSrc(source, optimize, combinedJson, timeoutMillis, TimeUnit.MILLISECONDS, options);
+    }
+
+    /**
+     * Same as {@link #compileSrc(File, boolean, boolean, Option...)} with its own time limit instead
+     * of {@code solc.timeout}. solc is killed when the limit elapses or the calling thread is interrupted.
+     *
+     * @param timeout maximum compilation time, {@code 0} for no limit
+     * @return a failed result with {@link Result#isTimedOut()} set if the limit was hit
+     */
+    public Result compileSrc(File source, boolean optimize, boolean combinedJson,
+                             long timeout, TimeUnit unit, Option... options) throws IOException {
         List<String> commandParts = prepareCommandOptions(optimize, combinedJson, options);
 
         commandParts.add(source.getAbsolutePath());
 
-        ProcessBuilder processBuilder = new ProcessBuilder(commandParts)
-                .directory(solc.getExecutable().getParentFile());
-        processBuilder.environment().put("LD_LIBRARY_PATH",
-                solc.getExecutable().getParentFile().getCanonicalPath());
-
-        Process process = processBuilder.start();
+        return run(backend.start(commandParts, false, metrics), null, unit.toMillis(timeout));
+    }
 
-        ParallelReader error = new ParallelReader(process.getErrorStream());
-        ParallelReader output = new ParallelReader(process.getInputStream());
-        error.start();
-        output.start();
+    /**
+     * Non-blocking counterpart of {@link #compileSrc(File, boolean, boolean, Option...)}.
+     */
+    public CompletableFuture<Result> compileAsync(File source, boolean optimize, boolean combinedJson, Option... options) {
+        return compileAsync(source, optimize, combinedJson, timeoutMillis, TimeUnit.MILLISECONDS, options);
+    }
 
+    /**
+     * Non-blocking counterpart of {@link #compileSrc(File, boolean, boolean, Option...)}.
+     * The solc process is killed when the returned future is cancelled or the timeout elapses,
+     * in which case the future completes with a result flagged {@link Result#isTimedOut()}.
+     *
+     * @param timeout maximum compilation time including queueing, {@code 0} for no limit
+     */
+    public CompletableFuture<Result> compileAsync(File source, boolean optimize, boolean combinedJson,
+                                                  long timeout, TimeUnit unit, Option... options) {
+        List<String> commandParts;
         try {
-            process.waitFor();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            commandParts = prepareCommandOptions(optimize, combinedJson, options);
+        } catch (IOException e) {
+            return failedFuture(e);
         }
-        boolean success = process.exitValue() == 0;
+        commandParts.add(source.getAbsolutePath());
 
-        return new Result(error.getContent(), output.getContent(), success);
+        return runAsync(commandParts, false, null, unit.toMillis(timeout));
     }
 
-    private List<String> prepareCommandOptions(boolean optimize, boolean combinedJson, Option... options) throws IOException {
+    List<String> prepareCommandOptions(boolean optimize, boolean combinedJson, Option... options) throws IOException {
         List<String> commandParts = new ArrayList<>();
         commandParts.add(solc.getExecutable().getCanonicalPath());
         if (optimize) {
             commandParts.add("--" + Options.OPTIMIZE.getName());
         }
+        // output options are sorted and deduplicated so equal option sets give equal command lines
+        List<OutputOption> outputOptions = getElementsOf(OutputOption.class, options).stream()
+                .distinct().sorted().collect(toList());
         if (combinedJson) {
-            Option combinedJsonOption = new Options.CombinedJson(getElementsOf(OutputOption.class, options));
+            Option combinedJsonOption = new Options.CombinedJson(outputOptions);
             commandParts.add("--" + combinedJsonOption.getName());
             commandParts.add(combinedJsonOption.getValue());
         } else {
-            for (Option option : getElementsOf(OutputOption.class, options)) {
+            for (Option option : outputOptions) {
                 commandParts.add("--" + option.getName());
             }
         }
@@ -311,66 +440,343 @@ public class SolidityCompiler {
         return commandParts;
     }
 
+    /**
+     * Whether solc may read files from disk, through {@link Options.AllowPaths} or an equivalent
+     * {@link CustomOption}.
+     */
+    private static boolean allowsPaths(Option... options) {
+        return !getElementsOf(Options.AllowPaths.class, options).isEmpty()
+                || getElementsOf(CustomOption.class, options).stream().anyMatch(o -> "allow-paths".equals(o.getName()));
+    }
+
     private static <T> List<T> getElementsOf(Class<T> clazz, Option... options) {
         return Arrays.stream(options).filter(clazz::isInstance).map(clazz::cast).collect(toList());
     }
 
     public Result compileSrc(byte[] source, boolean optimize, boolean combinedJson, Option... options) throws IOException {
+        return compileSrc(source, optimize, combinedJson, timeoutMillis, TimeUnit.MILLISECONDS, options);
+    }
+
+    /**
+     * Same as {@link #compileSrc(byte[], boolean, boolean, Option...)} with its own time limit instead
+     * of {@code solc.timeout}. solc is killed when the limit elapses or the calling thread is interrupted.
+     *
+     * @param timeout maximum compilation time, {@code 0} for no limit
+     * @return a failed result with {@link Result#isTimedOut()} set if the limit was hit
+     */
+    public Result compileSrc(byte[] source, boolean optimize, boolean combinedJson,
+                             long timeout, TimeUnit unit, Option... options) throws IOException {
         List<String> commandParts = prepareCommandOptions(optimize, combinedJson, options);
 
-        ProcessBuilder processBuilder = new ProcessBuilder(commandParts)
-                .directory(solc.getExecutable().getParentFile());
-        processBuilder.environment().put("LD_LIBRARY_PATH",
-                solc.getExecutable().getParentFile().getCanonicalPath());
+        return run(backend.start(commandParts, isSelfContained(source, options), metrics), source, unit.toMillis(timeout));
+    }
 
-        Process process = processBuilder.start();
+    /**
+     * A run is self-contained when solc reads nothing but its stdin: no {@code --allow-paths} and
+     * no imports. Only such runs may be answered from a cache or by a pre-spawned process, as
+     * anything read from disk can change between runs.
+     */
+    static boolean isSelfContained(byte[] source, Option... options) {
+        if (allowsPaths(options)) {
+            return false;
+        }
+        boolean[] imports = new boolean[1];
+        ImportScanner.scan(new String(source, UTF_8), (start, end, pathStart, pathEnd) -> imports[0] = true);
+        return !imports[0];
+    }
 
-        try (BufferedOutputStream stream = new BufferedOutputStream(process.getOutputStream())) {
-            stream.write(source);
+    /**
+     * Compiles the source to combined-json and parses solc's stdout while it is produced, so the
+     * raw output is never held in memory. Only the contract fields matching {@code options} are kept.
+     *
+     * @throws ContractException if solc fails or exceeds {@code solc.timeout}
+     */
+    public CompilationResult compileSrcToResult(byte[] source, boolean optimize, Option... options) throws IOException {
+        List<String> commandParts = prepareCommandOptions(optimize, true, options);
+        Option[] fields = getElementsOf(OutputOption.class, options).toArray(new Option[0]);
+
+        CompilerMetrics metrics = this.metrics;
+        CompilerBackend.Completion<CompilationResult> completion = backend.start(commandParts, isSelfContained(source, options), metrics)
+                .run(source, stdout -> {
+                    long start = System.nanoTime();
+                    CompilationResult result = CompilationResult.parse(stdout, fields);
+                    metrics.recordTime(CompilerMetrics.Phase.PARSE, System.nanoTime() - start);
+                    return result;
+                }, timeoutMillis);
+        if (completion.timedOut || completion.exitCode != 0) {
+            throw ContractException.compilationError("%s", completion.errors);
         }
+        return completion.output;
+    }
 
-        ParallelReader error = new ParallelReader(process.getErrorStream());
-        ParallelReader output = new ParallelReader(process.getInputStream());
-        error.start();
-        output.start();
+    /**
+     * Compiles the source to combined-json and streams every contract field into a file below
+     * {@code outputDir} instead of the heap, see {@link CompilationResult#parse(InputStream, File, Option...)}.
+     * Meant for outputs like {@link Options#ASTJSON} or {@link Options#METADATA} too large to hold in memory.
+     *
+     * @return contracts loading their fields from {@code outputDir} on first access
+     * @throws ContractException if solc fails or exceeds {@code solc.timeout}
+     */
+    public CompilationResult compileSrcToDirectory(byte[] source, boolean optimize, File outputDir,
+                                                   Option... options) throws IOException {
+        List<String> commandParts = prepareCommandOptions(optimize, true, options);
+        Option[] fields = getElementsOf(OutputOption.class, options).toArray(new Option[0]);
+
+        CompilerMetrics metrics = this.metrics;
+        CompilerBackend.Completion<CompilationResult> completion = backend.start(commandParts, isSelfContained(source, options), metrics)
+                .run(source, stdout -> {
+                    long start = System.nanoTime();
+                    CompilationResult result = CompilationResult.parse(stdout, outputDir, fields);
+                    metrics.recordTime(CompilerMetrics.Phase.PARSE, System.nanoTime() - start);
+                    return result;
+                }, timeoutMillis);
+        if (completion.timedOut || completion.exitCode != 0) {
+            throw ContractException.compilationError("%s", completion.errors);
+        }
+        return completion.output;
+    }
 
+    /**
+     * Non-blocking counterpart of {@link #compileSrc(byte[], boolean, boolean, Option...)}.
+     */
+    public CompletableFuture<Result> compileAsync(byte[] source, boolean optimize, boolean combinedJson, Option... options) {
+        return compileAsync(source, optimize, combinedJson, timeoutMillis, TimeUnit.MILLISECONDS, options);
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #compileSrc(byte[], boolean, boolean, Option...)}.
+     * The solc process is killed when the returned future is cancelled or the timeout elapses,
+     * in which case the future completes with a result flagged {@link Result#isTimedOut()}.
+     *
+     * @param timeout maximum compilation time including queueing, {@code 0} for no limit
+     */
+    public CompletableFuture<Result> compileAsync(byte[] source, boolean optimize, boolean combinedJson,
+                                                  long timeout, TimeUnit unit, Option... options) {
+        List<String> commandParts;
         try {
-            process.waitFor();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+            commandParts = prepareCommandOptions(optimize, combinedJson, options);
+        } catch (IOException e) {
+            return failedFuture(e);
         }
-        boolean success = process.exitValue() == 0;
 
-        return new Result(error.getContent(), output.getContent(), success);
+        return runAsync(commandParts, isSelfContained(source, options), source, unit.toMillis(timeout));
     }
 
-    public static String runGetVersionOutput() throws IOException {
-        List<String> commandParts = new ArrayList<>();
-        commandParts.add(getInstance().solc.getExecutable().getCanonicalPath());
-        commandParts.add("--" + Options.VERSION.getName());
+    private static Result run(CompilerBackend.Invocation invocation, byte[] input, long timeoutMillis) throws IOException {
+        CompilerBackend.Completion<String> completion = invocation.run(input, SolcProcess::readFully, timeoutMillis);
+        if (completion.timedOut) {
+            return Result.timedOut(completion.errors);
+        }
+        return new Result(completion.errors, completion.output, completion.exitCode == 0);
+    }
+
+    /**
+     * Spawns and drives the process on the shared compiler executor. Everything happens on one
+     * executor thread per compilation, so the number of in-flight solc processes is bounded by
+     * the executor size no matter how many futures are requested.
+     */
+    private CompletableFuture<Result> runAsync(List<String> commandParts, boolean selfContained, byte[] input,
+                                               long timeoutMillis) {
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        AtomicReference<CompilerBackend.Invocation> running = new AtomicReference<>();
+        future.whenComplete((result, e) -> {
+            CompilerBackend.Invocation process = running.get();
+            if ((e != null || result.isTimedOut()) && process != null) {
+                process.destroy();
+            }
+        });
+        if (timeoutMillis > 0) {
+            ScheduledFuture<?> timer = TIMER.schedule(() -> future.complete(
+                    Result.timedOut("solc didn't finish in " + timeoutMillis + " ms")), timeoutMillis, TimeUnit.MILLISECONDS);
+            future.whenComplete((result, e) -> timer.cancel(false));
+        }
+
+        getExecutor().execute(() -> {
+            if (future.isDone()) {
+                // cancelled or timed out while queued
+                return;
+            }
+            try {
+                CompilerBackend.Invocation process = backend.start(commandParts, selfContained, metrics);
+                running.set(process);
+                if (future.isDone()) {
+                    process.destroy();
+                    return;
+                }
+                future.complete(run(process, input, 0));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(asyncThreads, daemonThreadFactory("solc-compiler"));
+        }
+        return executor;
+    }
 
-        ProcessBuilder processBuilder = new ProcessBuilder(commandParts)
-                .directory(getInstance().solc.getExecutable().getParentFile());
-        processBuilder.environment().put("LD_LIBRARY_PATH",
-                getInstance().solc.getExecutable().getParentFile().getCanonicalPath());
+    private static ThreadFactory daemonThreadFactory(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-        Process process = processBuilder.start();
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
 
-        ParallelReader error = new ParallelReader(process.getErrorStream());
-        ParallelReader output = new ParallelReader(process.getInputStream());
-        error.start();
-        output.start();
+    /**
+     * Compiles in-memory sources with as few solc invocations as possible, using standard JSON
+     * input. Batches exceeding {@code solc.batch.maxSources} or {@code solc.batch.maxBytes} are
+     * split into chunks; sources imported from a chunk are passed along with it, but outputs are
+     * only produced for the chunk's own sources.
+     *
+     * @param sources source unit name (as used in imports) to source
+     * @param options output options, e.g. {@link Options#ABI}, {@link Options#BIN}
+     */
+    public BatchResult compileBatch(Map<String, byte[]> sources, boolean optimize, Option... options) throws IOException {
+        Map<String, String> available = new LinkedHashMap<>();
+        sources.forEach((name, source) -> available.put(name, new String(source, UTF_8)));
 
-        try {
-            process.waitFor();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        return compileBatch(new ArrayList<>(sources.keySet()), name -> sources.get(name).length,
+                available::get, available, optimize, Collections.emptyList(), options);
+    }
+
+    /**
+     * Compiles source files with as few solc invocations as possible, using standard JSON input.
+     * Sources are named by their absolute paths; their imports are read by solc from disk.
+     *
+     * @see #compileBatch(Map, boolean, Option...)
+     */
+    public BatchResult compileBatch(Collection<File> sources, boolean optimize, Option... options) throws IOException {
+        List<String> names = new ArrayList<>();
+        Set<String> dirs = new LinkedHashSet<>();
+        for (File source : sources) {
+            names.add(source.getAbsolutePath());
+            dirs.add(source.getAbsoluteFile().getParent());
+        }
+        List<String> extraArgs = getElementsOf(Options.AllowPaths.class, options).isEmpty()
+                ? Arrays.asList("--allow-paths", String.join(",", dirs))
+                : Collections.emptyList();
+
+        return compileBatch(names, name -> new File(name).length(),
+                name -> new String(Files.readAllBytes(Paths.get(name)), UTF_8), null, optimize, extraArgs, options);
+    }
+
+    private interface SourceReader {
+        String read(String name) throws IOException;
+    }
+
+    private BatchResult compileBatch(List<String> names, ToLongFunction<String> sizeOf, SourceReader reader,
+                                     Map<String, String> importable, boolean optimize, List<String> extraArgs,
+                                     Option... options) throws IOException {
+        List<String> commandParts = new ArrayList<>();
+        commandParts.add(solc.getExecutable().getCanonicalPath());
+        commandParts.add("--standard-json");
+        commandParts.addAll(extraArgs);
+        for (Option option : getElementsOf(ListOption.class, options)) {
+            commandParts.add("--" + option.getName());
+            commandParts.add(option.getValue());
+        }
+        List<String> outputs = StandardJson.outputSelection(getElementsOf(OutputOption.class, options).stream()
+                .map(OutputOption::getName).collect(toList()));
+
+        BatchResult batch = new BatchResult();
+        List<String> chunk = new ArrayList<>();
+        long chunkBytes = 0;
+        for (String name : names) {
+            long size = sizeOf.applyAsLong(name);
+            if (!chunk.isEmpty() && (chunk.size() >= batchMaxSources || chunkBytes + size > batchMaxBytes)) {
+                batch.addAll(compileChunk(chunk, reader, importable, optimize, outputs, commandParts, options));
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            chunk.add(name);
+            chunkBytes += size;
+        }
+        if (!chunk.isEmpty()) {
+            batch.addAll(compileChunk(chunk, reader, importable, optimize, outputs, commandParts, options));
+        }
+        return batch;
+    }
+
+    private BatchResult compileChunk(List<String> chunk, SourceReader reader, Map<String, String> importable,
+                                     boolean optimize, List<String> outputs, List<String> commandParts,
+                                     Option... options) throws IOException {
+        Map<String, String> chunkSources = new LinkedHashMap<>();
+        for (String name : chunk) {
+            chunkSources.put(name, reader.read(name));
         }
-        if (process.exitValue() == 0) {
-            return output.getContent();
+        if (importable != null) {
+            StandardJson.addImports(chunkSources, importable);
+        }
+
+        byte[] input = StandardJson.input(chunkSources, chunk, optimize, outputs);
+        // file batches are not self-contained: solc reads their imports from disk, and so it does
+        // for in-memory imports missing from the batch once paths are allowed
+        boolean selfContained = importable != null && !allowsPaths(options) && StandardJson.isClosed(chunkSources);
+        Result result = run(backend.start(commandParts, selfContained, metrics), input, timeoutMillis);
+        if (result.isFailed()) {
+            // solc itself failed, nothing to split
+            BatchResult failed = new BatchResult();
+            for (String name : chunk) {
+                failed.addSource(name, new CompilationResult(Collections.emptyMap(), solc.getVersion()));
+                failed.addError(name, result.errors);
+            }
+            return failed;
+        }
+        long start = System.nanoTime();
+        BatchResult batch = StandardJson.parseOutput(result.output, chunk, solc.getVersion());
+        metrics.recordTime(CompilerMetrics.Phase.PARSE, System.nanoTime() - start);
+
+        // solc dropped sound sources along with broken ones; compile those again on their own,
+        // leaving out the ones importing a broken source, which would only fail again
+        Set<String> skipped = batch.getSkipped();
+        if (skipped.isEmpty() || skipped.size() == chunk.size()) {
+            return batch;
+        }
+        Set<String> broken = new LinkedHashSet<>();
+        for (String name : chunk) {
+            if (batch.isFailed(name) && !skipped.contains(name)) {
+                broken.add(name);
+            }
+        }
+        List<String> retry = new ArrayList<>();
+        for (String name : skipped) {
+            if (!StandardJson.importsAny(name, chunkSources, broken)) {
+                retry.add(name);
+            }
+        }
+        if (retry.isEmpty()) {
+            return batch;
+        }
+        BatchResult retried = compileChunk(retry, reader, importable, optimize, outputs, commandParts, options);
+        BatchResult merged = new BatchResult();
+        for (String name : chunk) {
+            merged.add(retry.contains(name) ? retried : batch, name);
+        }
+        return merged;
+    }
+
+    public static String runGetVersionOutput() throws IOException {
+        List<String> commandParts = new ArrayList<>();
+        commandParts.add(getInstance().solc.getExecutable().getCanonicalPath());
+        commandParts.add("--" + Options.VERSION.getName());
+
+        Result result = SolcProcess.start(getInstance().solc.processBuilder(commandParts)).run(null);
+        if (!result.isFailed()) {
+            return result.output;
         }
 
-        throw new RuntimeException("Problem getting solc version: " + error.getContent());
+        throw new RuntimeException("Problem getting solc version: " + result.errors);
     }
 
     public static SolidityCompiler getInstance() {
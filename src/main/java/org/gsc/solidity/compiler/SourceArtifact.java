@@ -21,13 +21,14 @@ package org.gsc.solidity.compiler;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.*;
 
-import static java.lang.String.format;
-import static java.util.Arrays.asList;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.collections4.CollectionUtils.disjunction;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
-import static org.apache.commons.lang3.StringUtils.substringsBetween;
 import static org.gsc.solidity.compiler.ContractException.assembleError;
 
 @Slf4j
@@ -36,23 +37,47 @@ public class SourceArtifact {
     private String name;
     private List<String> dependencies;
     private String source;
+    // UTF-8 contents of a file backed artifact until the source is decoded
+    private ByteBuffer content;
 
-    private final Set<SourceArtifact> injectedDependencies = new HashSet<>();
+    private final Set<SourceArtifact> injectedDependencies = new LinkedHashSet<>();
     private final Set<SourceArtifact> dependentArtifacts = new HashSet<>();
 
+    // flattened source, dropped whenever the dependency graph below this artifact changes
+    private String plainSource;
+
     public SourceArtifact(String name, String source) {
         this.name = name;
         this.dependencies = extractDependencies(source);
-        this.source = source.replaceAll("import\\s\"\\.*?\\.sol\";", "");
+        this.source = source;
     }
 
-    public SourceArtifact(File f) {
-
+    /**
+     * Reads the file and scans its imports straight from the bytes; the source text is only
+     * decoded once it is needed, e.g. for {@link #plainSource()}. The file is read rather than
+     * mapped: a mapping can't be released before it is garbage collected.
+     */
+    public SourceArtifact(File f) throws IOException {
+        this.content = ByteBuffer.wrap(Files.readAllBytes(f.toPath()));
+        this.name = f.getName();
+        this.dependencies = extractDependencies(content);
     }
 
     private static List<String> extractDependencies(String source) {
-        String[] deps = substringsBetween(source, "import \"", "\";");
-        return deps == null ? Collections.<String>emptyList() : asList(deps);
+        List<String> deps = new ArrayList<>();
+        ImportScanner.scan(source, (start, end, pathStart, pathEnd) -> deps.add(source.substring(pathStart, pathEnd)));
+        return deps;
+    }
+
+    private static List<String> extractDependencies(ByteBuffer bytes) {
+        List<String> deps = new ArrayList<>();
+        ImportScanner.scan(ImportScanner.asciiView(bytes), (start, end, pathStart, pathEnd) -> {
+            ByteBuffer path = bytes.duplicate();
+            path.position(pathStart);
+            path.limit(pathEnd);
+            deps.add(UTF_8.decode(path).toString());
+        });
+        return deps;
     }
 
 //    public SourceArtifact(MultipartFile srcFile) throws IOException {
@@ -60,14 +85,38 @@ public class SourceArtifact {
 //    }
 
     public void injectDependency(SourceArtifact srcArtifact) {
-        injectedDependencies.add(srcArtifact);
-        srcArtifact.addDependentArtifact(this);
+        if (injectedDependencies.add(srcArtifact)) {
+            srcArtifact.addDependentArtifact(this);
+            invalidatePlainSource();
+        }
+    }
+
+    /**
+     * Drops the edges of a previous resolution, so an artifact reused in another set of sources
+     * is linked to that set's artifacts only.
+     */
+    void clearDependencies() {
+        for (SourceArtifact dependency : injectedDependencies) {
+            dependency.dependentArtifacts.remove(this);
+        }
+        injectedDependencies.clear();
+        dependentArtifacts.clear();
+        plainSource = null;
     }
 
     private void addDependentArtifact(SourceArtifact srcArtifact) {
         dependentArtifacts.add(srcArtifact);
     }
 
+    private void invalidatePlainSource() {
+        if (plainSource != null) {
+            plainSource = null;
+            for (SourceArtifact dependent : dependentArtifacts) {
+                dependent.invalidatePlainSource();
+            }
+        }
+    }
+
     public boolean hasDependentArtifacts() {
         return !dependentArtifacts.isEmpty();
     }
@@ -78,24 +127,97 @@ public class SourceArtifact {
             ret.add(injectedDependency.getName());
         }
 
-        return disjunction(dependencies, ret);
+        return disjunction(new HashSet<>(dependencies), ret);
     }
 
+    /**
+     * @return this source with every dependency inlined exactly once, dependencies first; memoized
+     */
     public String plainSource() {
-        Collection<String> unresolvedDeps = getUnresolvedDependencies();
-        if (isNotEmpty(unresolvedDeps)) {
-            throw assembleError("Followed dependencies aren't resolved: %s", unresolvedDeps);
+        if (plainSource == null) {
+            plainSource = flatten(Collections.singletonList(this));
         }
+        return plainSource;
+    }
 
-        String result = this.source;
-        for (SourceArtifact dependencyArtifact : injectedDependencies) {
-            String importDefinition = format("import \"%s\";", dependencyArtifact.getName());
-            String dependencySrc = format("// %s\n%s", importDefinition, dependencyArtifact.plainSource());
+    /**
+     * Concatenates the given artifacts and all their transitive dependencies in topological order,
+     * each of them once and with its resolved imports removed. Runs in a single pass, linear in the
+     * total source size no matter how many paths lead to a shared dependency.
+     */
+    static String flatten(Collection<SourceArtifact> roots) {
+        List<SourceArtifact> order = topologicalOrder(roots);
+        Set<SourceArtifact> rootSet = new HashSet<>(roots);
+
+        int length = 0;
+        for (SourceArtifact artifact : order) {
+            Collection<String> unresolvedDeps = artifact.getUnresolvedDependencies();
+            if (isNotEmpty(unresolvedDeps)) {
+                throw assembleError("Followed dependencies aren't resolved: %s", unresolvedDeps);
+            }
+            length += artifact.getSource().length() + artifact.name.length() + 16;
+        }
 
-            result = result.replace(importDefinition, dependencySrc);
+        StringBuilder result = new StringBuilder(length);
+        for (SourceArtifact artifact : order) {
+            if (!rootSet.contains(artifact)) {
+                result.append("// import \"").append(artifact.name).append("\";\n");
+            }
+            artifact.appendWithoutImports(result);
+            result.append('\n');
         }
+        return result.toString();
+    }
 
-        return result;
+    private void appendWithoutImports(StringBuilder result) {
+        String source = getSource();
+        int[] from = {0};
+        ImportScanner.scan(source, (start, end, pathStart, pathEnd) -> {
+            result.append(source, from[0], start);
+            from[0] = end;
+        });
+        result.append(source, from[0], source.length());
+    }
+
+    /**
+     * @return the given artifacts and their transitive dependencies, every artifact after its dependencies
+     * @throws ContractException if the dependencies form a cycle
+     */
+    static List<SourceArtifact> topologicalOrder(Collection<SourceArtifact> roots) {
+        List<SourceArtifact> order = new ArrayList<>();
+        Set<SourceArtifact> visited = new HashSet<>();
+        Deque<SourceArtifact> path = new ArrayDeque<>();
+        for (SourceArtifact root : roots) {
+            visit(root, visited, path, order);
+        }
+        return order;
+    }
+
+    private static void visit(SourceArtifact artifact, Set<SourceArtifact> visited, Deque<SourceArtifact> path,
+                              List<SourceArtifact> order) {
+        if (visited.contains(artifact)) {
+            return;
+        }
+        if (path.contains(artifact)) {
+            StringBuilder cycle = new StringBuilder();
+            Iterator<SourceArtifact> it = path.descendingIterator();
+            boolean inCycle = false;
+            while (it.hasNext()) {
+                SourceArtifact onPath = it.next();
+                inCycle |= onPath == artifact;
+                if (inCycle) {
+                    cycle.append(onPath.getName()).append(" -> ");
+                }
+            }
+            throw assembleError("circular dependency: %s%s", cycle, artifact.getName());
+        }
+        path.push(artifact);
+        for (SourceArtifact dependency : artifact.injectedDependencies) {
+            visit(dependency, visited, path, order);
+        }
+        path.pop();
+        visited.add(artifact);
+        order.add(artifact);
     }
 
     public String getName() {
@@ -105,4 +227,20 @@ public class SourceArtifact {
     public List<String> getDependencies() {
         return dependencies;
     }
+
+    String getSource() {
+        if (source == null) {
+            source = UTF_8.decode(content.duplicate()).toString();
+            content = null;
+        }
+        return source;
+    }
+
+    Set<SourceArtifact> getInjectedDependencies() {
+        return injectedDependencies;
+    }
+
+    Set<SourceArtifact> getDependentArtifacts() {
+        return dependentArtifacts;
+    }
 }
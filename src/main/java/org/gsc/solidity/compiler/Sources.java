@@ -20,7 +20,11 @@ package org.gsc.solidity.compiler;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.gsc.solidity.compiler.ContractException.assembleError;
@@ -28,16 +32,31 @@ import static org.gsc.solidity.compiler.ContractException.assembleError;
 @Slf4j
 public class Sources {
 
-    private final Map<String, SourceArtifact> artifacts = new HashMap<>();
-    private String targetArtifact;
+    private final Map<String, SourceArtifact> artifacts = new LinkedHashMap<>();
+    private List<SourceArtifact> targetArtifacts;
 
-    public Sources(File[] files) {
+    public Sources(File[] files) throws IOException {
         for (File file : files) {
             artifacts.put(file.getName(), new SourceArtifact(file));
         }
     }
 
+    public Sources(Collection<SourceArtifact> sources) {
+        for (SourceArtifact artifact : sources) {
+            artifacts.put(artifact.getName(), artifact);
+        }
+    }
+
+    /**
+     * Links every artifact to the artifacts it imports, replacing links made for any other set of
+     * sources the artifacts were resolved in before.
+     *
+     * @throws ContractException if an import can't be resolved or the imports form a cycle
+     */
     public void resolveDependencies() {
+        for (SourceArtifact artifact : artifacts.values()) {
+            artifact.clearDependencies();
+        }
         for (String srcName : artifacts.keySet()) {
             SourceArtifact src = artifacts.get(srcName);
             for (String dep : src.getDependencies()) {
@@ -49,14 +68,42 @@ public class Sources {
             };
         }
 
+        targetArtifacts = new ArrayList<>();
         for (SourceArtifact artifact : artifacts.values()) {
             if (!artifact.hasDependentArtifacts()) {
-                targetArtifact = artifact.getName();
+                targetArtifacts.add(artifact);
             }
         }
+        // fails fast on import cycles
+        topologicalOrder();
+    }
+
+    /**
+     * @return all artifacts, every one after the artifacts it imports
+     * @throws ContractException on circular imports
+     */
+    public List<SourceArtifact> topologicalOrder() {
+        return SourceArtifact.topologicalOrder(artifacts.values());
     }
-    
+
+    public SourceArtifact getArtifact(String name) {
+        return artifacts.get(name);
+    }
+
+    /**
+     * @return all artifacts nothing else imports, in the order they were added
+     */
+    public List<SourceArtifact> getTargetArtifacts() {
+        return targetArtifacts;
+    }
+
+    /**
+     * @return every target with its dependencies inlined, shared dependencies included once
+     */
     public String plainSource() {
-        return artifacts.get(targetArtifact).plainSource();
+        if (targetArtifacts.size() == 1) {
+            return targetArtifacts.get(0).plainSource();
+        }
+        return SourceArtifact.flatten(targetArtifacts);
     }
 }
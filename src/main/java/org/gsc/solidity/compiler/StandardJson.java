@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) [2016] [ <ether.camp> ]
+ * This file is part of the ethereumJ library.
+ *
+ * The ethereumJ library is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * The ethereumJ library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with the ethereumJ library. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.gsc.solidity.compiler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds solc {@code --standard-json} input and splits its output back into per-source results.
+ */
+class StandardJson {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * @param sources all source units passed to solc, name to content
+     * @param selected sources outputs are requested for; other sources are only there to be imported
+     * @param outputs standard JSON output selection, e.g. {@code abi} or {@code evm.bytecode.object}
+     */
+    static byte[] input(Map<String, String> sources, Collection<String> selected, boolean optimize,
+                        Collection<String> outputs) throws IOException {
+        ObjectNode input = MAPPER.createObjectNode();
+        input.put("language", "Solidity");
+
+        ObjectNode sourcesNode = input.putObject("sources");
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            sourcesNode.putObject(source.getKey()).put("content", source.getValue());
+        }
+
+        ObjectNode settings = input.putObject("settings");
+        settings.putObject("optimizer").put("enabled", optimize).put("runs", 200);
+        ObjectNode selection = settings.putObject("outputSelection");
+        for (String name : selected) {
+            ArrayNode contractOutputs = selection.putObject(name).putArray("*");
+            outputs.forEach(contractOutputs::add);
+        }
+        return MAPPER.writeValueAsBytes(input);
+    }
+
+    /**
+     * Splits standard JSON output into one result per selected source. Diagnostics that don't
+     * point into a selected source (general errors, errors inside imported files) are reported
+     * against every selected source since all of them are affected.
+     * <p>
+     * solc 0.4 emits no contracts at all once any source has an error, so a selected source
+     * without contracts and without errors of its own is failed as skipped rather than reported
+     * as compiled to nothing.
+     */
+    static BatchResult parseOutput(String output, Collection<String> selected, String version) throws IOException {
+        JsonNode root = MAPPER.readTree(output);
+        BatchResult batch = new BatchResult();
+
+        JsonNode contracts = root.path("contracts");
+        for (String name : selected) {
+            Map<String, CompilationResult.ContractMetadata> sourceContracts = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> it = contracts.path(name).fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> contract = it.next();
+                sourceContracts.put(name + ':' + contract.getKey(), toMetadata(contract.getValue()));
+            }
+            batch.addSource(name, new CompilationResult(sourceContracts, version));
+        }
+
+        Set<String> errorFiles = new LinkedHashSet<>();
+        boolean hasErrors = false;
+        for (JsonNode error : root.path("errors")) {
+            String message = error.has("formattedMessage") ? error.get("formattedMessage").asText() : error.path("message").asText();
+            boolean isError = !"warning".equals(error.path("severity").asText());
+            String file = error.path("sourceLocation").path("file").textValue();
+            Diagnostic diagnostic = toDiagnostic(error, isError, file);
+            if (isError) {
+                hasErrors = true;
+                if (file != null) {
+                    errorFiles.add(file);
+                }
+            }
+            for (String name : selected) {
+                if (file == null || !selected.contains(file) || file.equals(name)) {
+                    batch.addDiagnostic(name, diagnostic);
+                    if (isError) {
+                        batch.addError(name, message);
+                    } else {
+                        batch.addWarning(name, message);
+                    }
+                }
+            }
+        }
+        if (hasErrors) {
+            String culprits = errorFiles.isEmpty() ? "other sources" : String.join(", ", errorFiles);
+            for (String name : selected) {
+                if (!contracts.has(name) && !batch.isFailed(name)) {
+                    batch.addSkipped(name, name + ": not compiled because of errors in " + culprits);
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * @return {@code true} if {@code name} imports, directly or not, any of {@code targets}
+     *         through the given sources
+     */
+    static boolean importsAny(String name, Map<String, String> sources, Set<String> targets) {
+        Set<String> seen = new LinkedHashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        queue.add(name);
+        while (!queue.isEmpty()) {
+            String current = queue.poll();
+            String source = sources.get(current);
+            if (source == null || !seen.add(current)) {
+                continue;
+            }
+            for (String imported : imports(current, source)) {
+                if (targets.contains(imported)) {
+                    return true;
+                }
+                queue.add(imported);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Standard JSON locates errors by character offsets; line and column are taken from the
+     * header of the formatted message when there is one.
+     */
+    private static Diagnostic toDiagnostic(JsonNode error, boolean isError, String file) {
+        String formatted = error.path("formattedMessage").asText();
+        int end = formatted.indexOf('\n');
+        Diagnostic header = Diagnostic.parseHeader(end < 0 ? formatted : formatted.substring(0, end));
+        return new Diagnostic(isError ? Diagnostic.Severity.ERROR : Diagnostic.Severity.WARNING, file,
+                header != null ? header.getLine() : 0,
+                header != null ? header.getColumn() : 0,
+                error.path("type").asText(isError ? "Error" : "Warning"),
+                error.path("message").asText());
+    }
+
+    private static CompilationResult.ContractMetadata toMetadata(JsonNode contract) throws IOException {
+        CompilationResult.ContractMetadata metadata = new CompilationResult.ContractMetadata();
+        if (contract.has("abi")) {
+            // combined-json reports the abi as a string, keep the same shape
+            metadata.abi = MAPPER.writeValueAsString(contract.get("abi"));
+            metadata.solInterface = metadata.abi;
+        }
+        metadata.bin = contract.path("evm").path("bytecode").path("object").textValue();
+        metadata.metadata = contract.path("metadata").textValue();
+        return metadata;
+    }
+
+    /**
+     * Adds to {@code chunk} every source of {@code available} it imports, transitively.
+     */
+    static void addImports(Map<String, String> chunk, Map<String, String> available) {
+        Deque<String> queue = new ArrayDeque<>(chunk.keySet());
+        while (!queue.isEmpty()) {
+            String name = queue.poll();
+            for (String imported : imports(name, chunk.get(name))) {
+                if (!chunk.containsKey(imported) && available.containsKey(imported)) {
+                    chunk.put(imported, available.get(imported));
+                    queue.add(imported);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if every source imported by {@code sources} is among them
+     */
+    static boolean isClosed(Map<String, String> sources) {
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            if (!sources.keySet().containsAll(imports(source.getKey(), source.getValue()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return source unit names imported by the source, resolved against its own name; imports
+     * in comments and strings don't count
+     */
+    static Set<String> imports(String name, String source) {
+        Set<String> ret = new LinkedHashSet<>();
+        ImportScanner.scan(source, (start, end, pathStart, pathEnd) ->
+                ret.add(resolveImport(name, source.substring(pathStart, pathEnd))));
+        return ret;
+    }
+
+    /**
+     * Resolves an import path the way solc does: paths starting with {@code ./} or {@code ../}
+     * are relative to the importing unit, anything else is taken as is.
+     */
+    static String resolveImport(String importer, String path) {
+        if (!path.startsWith("./") && !path.startsWith("../")) {
+            return path;
+        }
+        Deque<String> segments = new ArrayDeque<>();
+        String[] importerSegments = importer.split("/");
+        for (int i = 0; i < importerSegments.length - 1; i++) {
+            segments.addLast(importerSegments[i]);
+        }
+        for (String segment : path.split("/")) {
+            if ("..".equals(segment)) {
+                segments.pollLast();
+            } else if (!".".equals(segment) && !segment.isEmpty()) {
+                segments.addLast(segment);
+            }
+        }
+        return String.join("/", segments);
+    }
+
+    static List<String> outputSelection(List<String> combinedJsonOutputs) {
+        Set<String> ret = new LinkedHashSet<>();
+        for (String output : combinedJsonOutputs) {
+            switch (output) {
+                case "abi":
+                case "interface":
+                    ret.add("abi");
+                    break;
+                case "bin":
+                    ret.add("evm.bytecode.object");
+                    break;
+                case "metadata":
+                    ret.add("metadata");
+                    break;
+                default:
+                    // ast outputs are per source unit and have no place in CompilationResult
+                    break;
+            }
+        }
+        return new ArrayList<>(ret);
+    }
+}
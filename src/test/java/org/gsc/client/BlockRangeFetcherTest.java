@@ -0,0 +1,109 @@
+package org.gsc.client;
+
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.gsc.api.GrpcAPI.BlockLimit;
+import org.gsc.api.GrpcAPI.BlockList;
+import org.gsc.api.WalletGrpc;
+import org.gsc.protos.Protocol.Block;
+import org.gsc.protos.Protocol.BlockHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class BlockRangeFetcherTest {
+
+  private static final long CHAIN_HEAD = 900;
+  private static final long FAILING_START = 500;
+
+  private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+
+  private Server server;
+  private WalletGrpcClient client;
+
+  @Before
+  public void start() throws Exception {
+    String name = getClass().getSimpleName();
+    server = InProcessServerBuilder.forName(name).addService(new WalletGrpc.WalletImplBase() {
+      @Override
+      public void getBlockByLimitNext(BlockLimit request, StreamObserver<BlockList> observer) {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        // answer out of order
+        responder.schedule(() -> {
+          running.decrementAndGet();
+          if (request.getStartNum() == FAILING_START) {
+            observer.onError(Status.INTERNAL.asRuntimeException());
+            return;
+          }
+          BlockList.Builder blocks = BlockList.newBuilder();
+          for (long n = request.getStartNum(); n < Math.min(request.getEndNum(), CHAIN_HEAD); n++) {
+            blocks.addBlock(Block.newBuilder().setBlockHeader(BlockHeader.newBuilder()
+                .setRawData(BlockHeader.raw.newBuilder().setNumber(n))));
+          }
+          observer.onNext(blocks.build());
+          observer.onCompleted();
+        }, ThreadLocalRandom.current().nextInt(5), TimeUnit.MILLISECONDS);
+      }
+    }).build().start();
+    client = new WalletGrpcClient(InProcessChannelBuilder.forName(name).build());
+  }
+
+  @After
+  public void stop() throws Exception {
+    client.shutdown();
+    server.shutdownNow();
+    responder.shutdownNow();
+  }
+
+  @Test
+  public void blocksComeInOrderWithBoundedRequests() {
+    BlockRangeFetcher fetcher = new BlockRangeFetcher(client, 10, 4);
+    long expected = 5;
+    try (BlockRangeFetcher.BlockIterator blocks = fetcher.fetch(5, 495)) {
+      while (blocks.hasNext()) {
+        assertEquals(expected++, blocks.next().getBlockHeader().getRawData().getNumber());
+      }
+    }
+    assertEquals(495, expected);
+    assertTrue(maxRunning.get() <= 4);
+  }
+
+  @Test
+  public void blocksPastTheHeadAreMissing() {
+    BlockRangeFetcher fetcher = new BlockRangeFetcher(client, 10, 4);
+    try (Stream<Block> blocks = fetcher.stream(880, 950)) {
+      assertEquals(CHAIN_HEAD - 880, blocks.count());
+    }
+  }
+
+  @Test
+  public void failureSurfacesAtTheFailedChunk() {
+    BlockRangeFetcher fetcher = new BlockRangeFetcher(client, 10, 4);
+    long next = 450;
+    try (BlockRangeFetcher.BlockIterator blocks = fetcher.fetch(450, 600)) {
+      while (blocks.hasNext()) {
+        assertEquals(next++, blocks.next().getBlockHeader().getRawData().getNumber());
+      }
+      fail();
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.INTERNAL, e.getStatus().getCode());
+    }
+    // every block before the failed chunk was delivered
+    assertEquals(FAILING_START, next);
+  }
+}
@@ -0,0 +1,194 @@
+package org.gsc.client;
+
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.gsc.api.GrpcAPI.EmptyMessage;
+import org.gsc.api.GrpcAPI.NumberMessage;
+import org.gsc.api.WalletGrpc;
+import org.gsc.protos.Protocol.Block;
+import org.gsc.protos.Protocol.BlockHeader;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class NodeChannelPoolTest {
+
+  private final Map<String, Server> servers = new HashMap<>();
+  private final Map<String, AtomicLong> heads = new HashMap<>();
+  private final Map<String, AtomicInteger> hits = new HashMap<>();
+  private final Map<String, AtomicBoolean> down = new HashMap<>();
+  private final List<NodeChannelPool> pools = new ArrayList<>();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  @After
+  public void shutdown() {
+    release.countDown();
+    for (NodeChannelPool pool : pools) {
+      pool.shutdownNow();
+    }
+    for (Server server : servers.values()) {
+      server.shutdownNow();
+    }
+  }
+
+  private String start(String name, boolean blocking) throws IOException {
+    // a down node answers UNAVAILABLE, stopping the server would leave the channel in reconnect backoff
+    String target = getClass().getSimpleName() + "-" + name;
+    AtomicLong head = heads.computeIfAbsent(target, t -> new AtomicLong(100));
+    AtomicInteger count = hits.computeIfAbsent(target, t -> new AtomicInteger());
+    AtomicBoolean unavailable = down.computeIfAbsent(target, t -> new AtomicBoolean());
+    servers.put(target, InProcessServerBuilder.forName(target).addService(new WalletGrpc.WalletImplBase() {
+      @Override
+      public void getNowBlock(EmptyMessage request, StreamObserver<Block> observer) {
+        if (unavailable.get()) {
+          observer.onError(Status.UNAVAILABLE.asRuntimeException());
+          return;
+        }
+        observer.onNext(Block.newBuilder().setBlockHeader(BlockHeader.newBuilder()
+            .setRawData(BlockHeader.raw.newBuilder().setNumber(head.get()))).build());
+        observer.onCompleted();
+      }
+
+      @Override
+      public void getBlockByNum(NumberMessage request, StreamObserver<Block> observer) {
+        if (unavailable.get()) {
+          observer.onError(Status.UNAVAILABLE.asRuntimeException());
+          return;
+        }
+        count.incrementAndGet();
+        if (blocking) {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        observer.onNext(Block.getDefaultInstance());
+        observer.onCompleted();
+      }
+    }).build().start());
+    return target;
+  }
+
+  private NodeChannelPool pool(NodeChannelPool.Balancing balancing, String... targets) {
+    NodeChannelPool pool = new NodeChannelPool(Arrays.asList(targets), 2, balancing,
+        target -> InProcessChannelBuilder.forName(target).build());
+    pools.add(pool);
+    return pool;
+  }
+
+  @Test
+  public void roundRobinSpreadsCallsEvenly() throws IOException {
+    String a = start("rr-a", false);
+    String b = start("rr-b", false);
+    String c = start("rr-c", false);
+    WalletGrpcClient client = new WalletGrpcClient(pool(NodeChannelPool.Balancing.ROUND_ROBIN, a, b, c));
+
+    for (int i = 0; i < 30; i++) {
+      client.getBlockByNum(i);
+    }
+
+    assertEquals(10, hits.get(a).get());
+    assertEquals(10, hits.get(b).get());
+    assertEquals(10, hits.get(c).get());
+  }
+
+  @Test
+  public void leastOutstandingAvoidsBusyNode() throws Exception {
+    String fast = start("lo-fast", false);
+    String slow = start("lo-slow", true);
+    NodeChannelPool pool = pool(NodeChannelPool.Balancing.LEAST_OUTSTANDING, fast, slow);
+    WalletGrpcClient client = new WalletGrpcClient(pool);
+
+    List<CompletableFuture<Block>> calls = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      int slowHits = hits.get(slow).get();
+      CompletableFuture<Block> call = client.getBlockByNumAsync(i);
+      calls.add(call);
+      // settle each call before the next so the outstanding counts are exact
+      while (!call.isDone() && hits.get(slow).get() == slowHits) {
+        Thread.sleep(1);
+      }
+    }
+
+    // once each channel of the slow node holds a call, the idle channels of the fast one win every pick
+    assertEquals(2, hits.get(slow).get());
+    assertEquals(18, hits.get(fast).get());
+    assertEquals(2, pool.getOutstanding());
+    release.countDown();
+    for (CompletableFuture<Block> call : calls) {
+      call.get(5, TimeUnit.SECONDS);
+    }
+    assertEquals(0, pool.getOutstanding());
+  }
+
+  @Test
+  public void probesEjectFailedAndLaggingNodes() throws Exception {
+    String a = start("probe-a", false);
+    String b = start("probe-b", false);
+    String c = start("probe-c", false);
+    NodeChannelPool pool = pool(NodeChannelPool.Balancing.ROUND_ROBIN, a, b, c).setMaxBlockLag(10);
+
+    pool.checkHealth();
+    assertEquals(Arrays.asList(a, b, c), pool.getHealthyTargets());
+
+    heads.get(b).set(50);
+    down.get(c).set(true);
+    pool.checkHealth();
+    assertEquals(Arrays.asList(a), pool.getHealthyTargets());
+
+    heads.get(b).set(95);
+    down.get(c).set(false);
+    pool.checkHealth();
+    assertEquals(Arrays.asList(a, b, c), pool.getHealthyTargets());
+  }
+
+  @Test
+  public void unavailableNodeIsReadmittedAfterBackoff() throws Exception {
+    String a = start("backoff-a", false);
+    String b = start("backoff-b", false);
+    NodeChannelPool pool = pool(NodeChannelPool.Balancing.ROUND_ROBIN, a, b)
+        .setReadmitBackoff(200, TimeUnit.MILLISECONDS);
+    WalletGrpcClient client = new WalletGrpcClient(pool);
+    down.get(a).set(true);
+
+    int failures = 0;
+    for (int i = 0; i < 4; i++) {
+      try {
+        client.getBlockByNum(i);
+      } catch (StatusRuntimeException e) {
+        failures++;
+      }
+    }
+    // the first call to the stopped node ejects it, the rest go to the other one
+    assertEquals(1, failures);
+    assertEquals(Arrays.asList(b), pool.getHealthyTargets());
+
+    down.get(a).set(false);
+    Thread.sleep(250);
+    client.getBlockByNum(0);
+    assertEquals(Arrays.asList(a, b), pool.getHealthyTargets());
+    for (int i = 0; i < 4; i++) {
+      client.getBlockByNum(i);
+    }
+    assertTrue(hits.get(a).get() > 0);
+  }
+}
@@ -0,0 +1,62 @@
+package org.gsc.client;
+
+import org.gsc.api.GrpcAPI.NumberMessage;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WalletCacheTest {
+
+  private static NumberMessage number(long num) {
+    return NumberMessage.newBuilder().setNum(num).build();
+  }
+
+  @Test
+  public void finalEntriesAreEvictedLeastRecentlyUsedFirst() {
+    WalletCache cache = new WalletCache(2, 0);
+    cache.putFinal("GetBlockByNum", number(1), "one");
+    cache.putFinal("GetBlockByNum", number(2), "two");
+    assertEquals("one", cache.getFinal("GetBlockByNum", number(1)));
+    cache.putFinal("GetBlockByNum", number(3), "three");
+
+    assertNull(cache.getFinal("GetBlockByNum", number(2)));
+    assertEquals("one", cache.getFinal("GetBlockByNum", number(1)));
+    assertEquals("three", cache.getFinal("GetBlockByNum", number(3)));
+    assertEquals(1, cache.getEvictions());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void entriesAreKeyedByMethodAndRequest() {
+    WalletCache cache = new WalletCache(8, 0);
+    cache.putFinal("GetBlockByNum", number(1), "block");
+    assertNull(cache.getFinal("GetTransactionCountByBlockNum", number(1)));
+    assertNull(cache.getFinal("GetBlockByNum", number(2)));
+    assertEquals("block", cache.getFinal("GetBlockByNum", number(1)));
+    assertEquals(1, cache.getFinalHits());
+    assertEquals(2, cache.getFinalMisses());
+  }
+
+  @Test
+  public void recentEntriesExpire() throws InterruptedException {
+    WalletCache cache = new WalletCache(8, 50);
+    cache.putRecent("GetNowBlock", number(0), "head");
+    assertEquals("head", cache.getRecent("GetNowBlock", number(0)));
+    Thread.sleep(80);
+    assertNull(cache.getRecent("GetNowBlock", number(0)));
+    assertEquals(0.5, cache.getHitRate(), 0);
+
+    WalletCache uncached = new WalletCache(8, 0);
+    uncached.putRecent("GetNowBlock", number(0), "head");
+    assertNull(uncached.getRecent("GetNowBlock", number(0)));
+  }
+
+  @Test
+  public void headOnlyMovesForward() {
+    WalletCache cache = new WalletCache(8, 0);
+    assertEquals(-1, cache.getHead());
+    cache.updateHead(10);
+    cache.updateHead(5);
+    assertEquals(10, cache.getHead());
+  }
+}
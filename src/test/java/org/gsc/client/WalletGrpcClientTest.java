@@ -0,0 +1,242 @@
+package org.gsc.client;
+
+import com.google.protobuf.ByteString;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.gsc.api.GrpcAPI.EmptyMessage;
+import org.gsc.api.GrpcAPI.NumberMessage;
+import org.gsc.api.WalletGrpc;
+import org.gsc.protos.Protocol.Account;
+import org.gsc.protos.Protocol.Block;
+import org.gsc.protos.Protocol.BlockHeader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class WalletGrpcClientTest {
+
+  private static final byte[] ADDRESS = {1, 2, 3};
+
+  // getAccount calls are held until answered by the test
+  private final Queue<StreamObserver<Account>> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger accountCalls = new AtomicInteger();
+  private final AtomicInteger cancelledCalls = new AtomicInteger();
+  private final AtomicInteger blockCalls = new AtomicInteger();
+  private final AtomicLong head = new AtomicLong(100);
+
+  private Server server;
+  private WalletGrpcClient client;
+
+  @Before
+  public void start() throws Exception {
+    String name = getClass().getSimpleName();
+    server = InProcessServerBuilder.forName(name).addService(new WalletGrpc.WalletImplBase() {
+      @Override
+      public void getAccount(Account request, StreamObserver<Account> observer) {
+        accountCalls.incrementAndGet();
+        ((ServerCallStreamObserver<Account>) observer).setOnCancelHandler(cancelledCalls::incrementAndGet);
+        pending.add(observer);
+      }
+
+      @Override
+      public void getNowBlock(EmptyMessage request, StreamObserver<Block> observer) {
+        blockCalls.incrementAndGet();
+        observer.onNext(block(head.get()));
+        observer.onCompleted();
+      }
+
+      @Override
+      public void getBlockByNum(NumberMessage request, StreamObserver<Block> observer) {
+        blockCalls.incrementAndGet();
+        observer.onNext(request.getNum() <= head.get() ? block(request.getNum()) : Block.getDefaultInstance());
+        observer.onCompleted();
+      }
+    }).build().start();
+    client = new WalletGrpcClient(InProcessChannelBuilder.forName(name).build());
+  }
+
+  @After
+  public void stop() throws Exception {
+    client.shutdown();
+    server.shutdownNow();
+  }
+
+  private static Block block(long number) {
+    return Block.newBuilder().setBlockHeader(BlockHeader.newBuilder()
+        .setRawData(BlockHeader.raw.newBuilder().setNumber(number))).build();
+  }
+
+  private static Account account(long balance) {
+    return Account.newBuilder().setAddress(ByteString.copyFrom(ADDRESS)).setBalance(balance).build();
+  }
+
+  private void awaitCalls(int calls) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (pending.size() < calls && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(calls, pending.size());
+  }
+
+  private void awaitCancelled(int calls) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cancelledCalls.get() < calls && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(calls, cancelledCalls.get());
+  }
+
+  private void answer(Account account) {
+    StreamObserver<Account> observer;
+    while ((observer = pending.poll()) != null) {
+      observer.onNext(account);
+      observer.onCompleted();
+    }
+  }
+
+  @Test
+  public void asyncCallCompletesWithResponse() throws Exception {
+    CompletableFuture<Account> future = client.queryAccountAsync(ADDRESS);
+    awaitCalls(1);
+    assertFalse(future.isDone());
+    answer(account(42));
+    assertEquals(42, future.get(5, TimeUnit.SECONDS).getBalance());
+  }
+
+  @Test
+  public void cancellingAsyncCallCancelsTheCall() throws Exception {
+    CompletableFuture<Account> future = client.queryAccountAsync(ADDRESS);
+    awaitCalls(1);
+    assertTrue(future.cancel(true));
+    awaitCancelled(1);
+  }
+
+  @Test
+  public void identicalQueriesShareOneCall() throws Exception {
+    client.setCoalescing(true);
+    List<CompletableFuture<Account>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(client.queryAccountAsync(ADDRESS));
+    }
+    awaitCalls(1);
+    answer(account(7));
+    for (CompletableFuture<Account> future : futures) {
+      assertEquals(7, future.get(5, TimeUnit.SECONDS).getBalance());
+    }
+    assertEquals(1, accountCalls.get());
+    assertEquals(9, client.getCoalescedCalls());
+  }
+
+  @Test
+  public void sharedCallIsCancelledOnlyWithItsLastFollower() throws Exception {
+    client.setCoalescing(true);
+    CompletableFuture<Account> first = client.queryAccountAsync(ADDRESS);
+    CompletableFuture<Account> second = client.queryAccountAsync(ADDRESS);
+    awaitCalls(1);
+
+    assertTrue(first.cancel(true));
+    Thread.sleep(50);
+    assertEquals(0, cancelledCalls.get());
+
+    assertTrue(second.cancel(true));
+    awaitCancelled(1);
+
+    // a new query doesn't join the abandoned call
+    pending.clear();
+    CompletableFuture<Account> third = client.queryAccountAsync(ADDRESS);
+    awaitCalls(1);
+    answer(account(3));
+    assertEquals(3, third.get(5, TimeUnit.SECONDS).getBalance());
+    assertEquals(2, accountCalls.get());
+  }
+
+  @Test
+  public void interruptedCallerDoesNotFailTheOthers() throws Exception {
+    client.setCoalescing(true);
+    AtomicReference<Throwable> leaderFailure = new AtomicReference<>();
+    Thread leader = new Thread(() -> {
+      try {
+        client.queryAccount(ADDRESS);
+      } catch (Throwable e) {
+        leaderFailure.set(e);
+      }
+    });
+    leader.start();
+    awaitCalls(1);
+    CompletableFuture<Account> joiner = CompletableFuture.supplyAsync(() -> client.queryAccount(ADDRESS));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (client.getCoalescedCalls() < 1 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+
+    leader.interrupt();
+    leader.join(5000);
+    assertEquals(Status.Code.CANCELLED, ((StatusRuntimeException) leaderFailure.get()).getStatus().getCode());
+    assertEquals(0, cancelledCalls.get());
+
+    answer(account(5));
+    assertEquals(5, joiner.get(5, TimeUnit.SECONDS).getBalance());
+    assertEquals(1, accountCalls.get());
+  }
+
+  @Test
+  public void failureReachesEveryFollower() throws Exception {
+    client.setCoalescing(true);
+    CompletableFuture<Account> first = client.queryAccountAsync(ADDRESS);
+    CompletableFuture<Account> second = client.queryAccountAsync(ADDRESS);
+    awaitCalls(1);
+    pending.poll().onError(Status.NOT_FOUND.asRuntimeException());
+    for (CompletableFuture<Account> future : Arrays.asList(first, second)) {
+      try {
+        future.get(5, TimeUnit.SECONDS);
+        fail();
+      } catch (ExecutionException e) {
+        assertEquals(Status.Code.NOT_FOUND, ((StatusRuntimeException) e.getCause()).getStatus().getCode());
+      } catch (CancellationException e) {
+        fail();
+      }
+    }
+  }
+
+  @Test
+  public void cacheServesFinalBlocksAndRecentHead() throws Exception {
+    WalletCache cache = new WalletCache(16, 60_000);
+    client.setCache(cache);
+
+    assertEquals(100, client.getNowBlock().getBlockHeader().getRawData().getNumber());
+    assertEquals(100, client.getNowBlockAsync().get(5, TimeUnit.SECONDS).getBlockHeader().getRawData().getNumber());
+    assertEquals(1, blockCalls.get());
+    assertEquals(100, cache.getHead());
+
+    // below the head a block is final and fetched once, the head itself may still change
+    client.getBlockByNum(50);
+    client.getBlockByNum(50);
+    assertEquals(50, client.getBlockByNumAsync(50).get(5, TimeUnit.SECONDS).getBlockHeader().getRawData().getNumber());
+    assertEquals(2, blockCalls.get());
+    client.getBlockByNum(100);
+    client.getBlockByNum(100);
+    assertEquals(4, blockCalls.get());
+    assertEquals(1, cache.size());
+  }
+}
@@ -0,0 +1,59 @@
+package org.gsc.solc;
+
+import org.gsc.solidity.compiler.CompilationCache;
+import org.gsc.solidity.compiler.SolidityCompiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompilationCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keyDependsOnSourceVersionAndOptions() {
+        byte[] source = "contract cont {}".getBytes();
+        String key = CompilationCache.key(source, "0.4.25", Arrays.asList("--combined-json", "abi,bin"));
+
+        assertEquals(key, CompilationCache.key(source, "0.4.25", Arrays.asList("--combined-json", "abi,bin")));
+        assertNotEquals(key, CompilationCache.key("contract other {}".getBytes(), "0.4.25", Arrays.asList("--combined-json", "abi,bin")));
+        assertNotEquals(key, CompilationCache.key(source, "0.4.24", Arrays.asList("--combined-json", "abi,bin")));
+        assertNotEquals(key, CompilationCache.key(source, "0.4.25", Arrays.asList("--combined-json", "abi")));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        CompilationCache cache = new CompilationCache(2, null);
+        cache.put("a", new SolidityCompiler.Result("", "A", true));
+        cache.put("b", new SolidityCompiler.Result("", "B", true));
+        assertEquals("A", cache.get("a").output);
+        cache.put("c", new SolidityCompiler.Result("", "C", true));
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a").output);
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void diskTierSurvivesNewInstance() throws IOException {
+        String key = CompilationCache.key("contract cont {}".getBytes(), "0.4.25", Arrays.asList("--bin"));
+        new CompilationCache(1, folder.getRoot()).put(key, new SolidityCompiler.Result("warning", "output", true));
+
+        CompilationCache cache = new CompilationCache(1, folder.getRoot());
+        SolidityCompiler.Result result = cache.get(key);
+
+        assertNotNull(result);
+        assertEquals("warning", result.errors);
+        assertEquals("output", result.output);
+        assertFalse(result.isFailed());
+        assertEquals(1, cache.getDiskHits());
+    }
+}
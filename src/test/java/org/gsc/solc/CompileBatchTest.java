@@ -0,0 +1,36 @@
+package org.gsc.solc;
+
+import org.gsc.solidity.compiler.BatchResult;
+import org.gsc.solidity.compiler.SolidityCompiler;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.gsc.solidity.compiler.SolidityCompiler.Options.*;
+import static org.junit.Assert.*;
+
+public class CompileBatchTest {
+
+    @Test
+    public void brokenSourceDoesNotEmptyTheRestOfTheBatch() throws IOException {
+        Map<String, byte[]> sources = new LinkedHashMap<>();
+        sources.put("a.sol", "pragma solidity ^0.4.23;\ncontract A {}".getBytes());
+        sources.put("broken.sol", "pragma solidity ^0.4.23;\ncontract Broken { BROKEN".getBytes());
+        sources.put("b.sol", "pragma solidity ^0.4.23;\ncontract B {}".getBytes());
+        sources.put("c.sol", "pragma solidity ^0.4.23;\nimport \"./broken.sol\";\ncontract C {}".getBytes());
+
+        BatchResult batch = SolidityCompiler.getInstance().compileBatch(sources, false, ABI, BIN);
+
+        assertTrue(batch.isFailed("broken.sol"));
+        assertFalse(batch.isFailed("a.sol"));
+        assertFalse(batch.isFailed("b.sol"));
+        assertNotNull(batch.getResult("a.sol").getContract("A"));
+        assertNotNull(batch.getResult("b.sol").getContract("B"));
+
+        // sources importing a broken one fail instead of silently compiling to nothing
+        assertTrue(batch.isFailed("c.sol"));
+        assertTrue(batch.getResult("c.sol").getContracts().isEmpty());
+    }
+}
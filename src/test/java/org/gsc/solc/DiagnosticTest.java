@@ -0,0 +1,51 @@
+package org.gsc.solc;
+
+import org.gsc.solidity.compiler.Diagnostic;
+import org.gsc.solidity.compiler.SolidityCompiler;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DiagnosticTest {
+
+    private static final String STDERR =
+            "Warning: This is a pre-release compiler version, please do not use it in production.\n" +
+            "a.sol:2:5: Warning: No visibility specified. Defaulting to \"public\".\n" +
+            "    function name() returns (string) {}\n" +
+            "    ^\n" +
+            "a.sol:3:14: TypeError: Type int_const 300 is not implicitly convertible to expected type uint8.\n" +
+            "    uint8 x = 300;\n" +
+            "             ^-^\n";
+
+    @Test
+    public void parsesStderr() {
+        List<Diagnostic> diagnostics = Diagnostic.parse(STDERR);
+
+        assertEquals(3, diagnostics.size());
+        Diagnostic general = diagnostics.get(0);
+        assertEquals(Diagnostic.Severity.WARNING, general.getSeverity());
+        assertNull(general.getSourceFile());
+        assertEquals(0, general.getLine());
+
+        Diagnostic error = diagnostics.get(2);
+        assertTrue(error.isError());
+        assertEquals("a.sol", error.getSourceFile());
+        assertEquals(3, error.getLine());
+        assertEquals(14, error.getColumn());
+        assertEquals("TypeError", error.getType());
+        assertEquals("Type int_const 300 is not implicitly convertible to expected type uint8.", error.getMessage());
+    }
+
+    @Test
+    public void warningsDoNotFail() {
+        SolidityCompiler.Result result = new SolidityCompiler.Result(
+                "a.sol:2:5: Warning: No visibility specified. Defaulting to \"public\".\n", "{}", true);
+
+        assertFalse(result.isFailed());
+        assertTrue(result.hasWarnings());
+        assertEquals(1, result.getWarnings().size());
+        assertSame(result.getDiagnostics(), result.getDiagnostics());
+    }
+}
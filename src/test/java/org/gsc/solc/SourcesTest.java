@@ -0,0 +1,117 @@
+package org.gsc.solc;
+
+import org.gsc.solidity.compiler.ContractException;
+import org.gsc.solidity.compiler.SourceArtifact;
+import org.gsc.solidity.compiler.Sources;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SourcesTest {
+
+    @Test
+    public void flattensDiamondOnce() {
+        Sources sources = new Sources(Arrays.asList(
+                new SourceArtifact("base.sol", "contract Base {}"),
+                new SourceArtifact("left.sol", "import \"base.sol\";\ncontract Left is Base {}"),
+                new SourceArtifact("right.sol", "import \"base.sol\";\ncontract Right is Base {}"),
+                new SourceArtifact("main.sol", "import \"left.sol\";\nimport \"right.sol\";\ncontract Main is Left, Right {}")));
+        sources.resolveDependencies();
+
+        String plain = sources.plainSource();
+
+        assertEquals(1, count(plain, "contract Base {}"));
+        assertFalse(plain.contains("\nimport "));
+        assertTrue(plain.indexOf("contract Base") < plain.indexOf("contract Left"));
+        assertTrue(plain.indexOf("contract Right") < plain.indexOf("contract Main"));
+        assertSame(plain, sources.getArtifact("main.sol").plainSource());
+    }
+
+    @Test
+    public void ordersDependenciesFirst() {
+        Sources sources = new Sources(Arrays.asList(
+                new SourceArtifact("c.sol", "import \"b.sol\"; contract C {}"),
+                new SourceArtifact("b.sol", "import \"a.sol\"; contract B {}"),
+                new SourceArtifact("a.sol", "contract A {}")));
+        sources.resolveDependencies();
+
+        List<String> names = new ArrayList<>();
+        for (SourceArtifact artifact : sources.topologicalOrder()) {
+            names.add(artifact.getName());
+        }
+        assertEquals(Arrays.asList("a.sol", "b.sol", "c.sol"), names);
+    }
+
+    @Test(expected = ContractException.class)
+    public void rejectsCycles() {
+        new Sources(Arrays.asList(
+                new SourceArtifact("main.sol", "import \"a.sol\"; contract Main {}"),
+                new SourceArtifact("a.sol", "import \"b.sol\"; contract A {}"),
+                new SourceArtifact("b.sol", "import \"a.sol\"; contract B {}"))).resolveDependencies();
+    }
+
+    @Test
+    public void flattensDeepSharedLibrariesLinearly() {
+        // every layer imports both artifacts of the layer below: 2^100 paths to the bottom
+        List<SourceArtifact> artifacts = new ArrayList<>();
+        artifacts.add(new SourceArtifact("l0a.sol", "contract L0a {}"));
+        artifacts.add(new SourceArtifact("l0b.sol", "contract L0b {}"));
+        for (int i = 1; i < 100; i++) {
+            String imports = "import \"l" + (i - 1) + "a.sol\";\nimport \"l" + (i - 1) + "b.sol\";\n";
+            artifacts.add(new SourceArtifact("l" + i + "a.sol", imports + "contract L" + i + "a {}"));
+            artifacts.add(new SourceArtifact("l" + i + "b.sol", imports + "contract L" + i + "b {}"));
+        }
+        artifacts.add(new SourceArtifact("main.sol", "import \"l99a.sol\";\nimport \"l99b.sol\";\ncontract Main {}"));
+        Sources sources = new Sources(artifacts);
+        sources.resolveDependencies();
+
+        String plain = sources.plainSource();
+
+        assertEquals(1, count(plain, "contract L0a {}"));
+        assertEquals(201, count(plain, "contract "));
+    }
+
+    @Test
+    public void loadsFileBackedArtifacts() throws IOException {
+        File dir = Files.createTempDirectory("sources").toFile();
+        try {
+            File lib = write(dir, "lib.sol", "// import \"missing.sol\";\ncontract Lib { string s = \"\u00e9 import \\\"x.sol\\\";\"; }");
+            File main = write(dir, "main.sol", "import \"lib.sol\";\n/* import \"missing.sol\"; */\ncontract Main is Lib {}");
+            Sources sources = new Sources(new File[]{lib, main});
+            sources.resolveDependencies();
+
+            assertEquals(Arrays.asList("lib.sol"), sources.getArtifact("main.sol").getDependencies());
+            assertTrue(sources.getArtifact("lib.sol").getDependencies().isEmpty());
+            String plain = sources.plainSource();
+            assertTrue(plain.contains("\u00e9 import"));
+            assertTrue(plain.indexOf("contract Lib") < plain.indexOf("contract Main"));
+        } finally {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    private static File write(File dir, String name, String content) throws IOException {
+        File file = new File(dir, name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static int count(String text, String fragment) {
+        int count = 0;
+        for (int i = text.indexOf(fragment); i >= 0; i = text.indexOf(fragment, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,61 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class CompileAsyncTest {
+
+    // the first run to get a source hangs, leaving its pid in the hung file; any later one answers
+    private static final String HANG_ONCE = ScriptSolc.RECORD_PID + "\ncat > /dev/null\n"
+            + "if [ ! -f hung ]; then echo $$ > hung.tmp; mv hung.tmp hung; exec sleep 30; fi\necho '{}'";
+
+    private static final byte[] SOURCE = "contract A {}".getBytes(UTF_8);
+
+    private static long hungPid(ScriptSolc solc) throws Exception {
+        assertTrue(solc.awaitFile("hung", 5000));
+        return Long.parseLong(new String(Files.readAllBytes(solc.dir.resolve("hung")), UTF_8).trim());
+    }
+
+    @Test
+    public void timeoutKillsProcess() throws Exception {
+        ScriptSolc solc = ScriptSolc.create(HANG_ONCE);
+
+        SolidityCompiler.Result result = solc.compiler.compileAsync(SOURCE, false, true, 200, TimeUnit.MILLISECONDS)
+                .get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isTimedOut());
+        assertTrue(ScriptSolc.awaitDeath(hungPid(solc), 5000));
+    }
+
+    @Test
+    public void compilationCancelledWhileQueuedNeverStarts() throws Exception {
+        ScriptSolc solc = ScriptSolc.create(HANG_ONCE, "solc.async.threads", "1");
+
+        CompletableFuture<SolidityCompiler.Result> hanging = solc.compiler.compileAsync(SOURCE, false, true);
+        assertTrue(solc.awaitFile("hung", 5000));
+        CompletableFuture<SolidityCompiler.Result> queued = solc.compiler.compileAsync(SOURCE, false, true);
+        assertTrue(queued.cancel(true));
+        assertTrue(hanging.cancel(true));
+        assertTrue(ScriptSolc.awaitDeath(hungPid(solc), 5000));
+
+        // the executor thread is free again, and the cancelled compilation didn't get a process
+        assertFalse(solc.compiler.compileAsync(SOURCE, false, true).get(5, TimeUnit.SECONDS).isFailed());
+        assertEquals(2, solc.pids().length);
+    }
+
+    @Test
+    public void cancellingPooledCompilationKillsProcess() throws Exception {
+        ScriptSolc solc = ScriptSolc.create(HANG_ONCE, "solc.pool.size", "1");
+
+        CompletableFuture<SolidityCompiler.Result> hanging = solc.compiler.compileAsync(SOURCE, false, true);
+        assertTrue(solc.awaitFile("hung", 5000));
+        assertTrue(hanging.cancel(true));
+        assertTrue(ScriptSolc.awaitDeath(hungPid(solc), 5000));
+    }
+}
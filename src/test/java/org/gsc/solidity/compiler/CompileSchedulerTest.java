@@ -0,0 +1,107 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.gsc.solidity.compiler.CompileScheduler.Priority.*;
+import static org.gsc.solidity.compiler.CompileScheduler.RejectionPolicy.*;
+import static org.junit.Assert.*;
+
+public class CompileSchedulerTest {
+
+    private CompileScheduler scheduler;
+
+    @After
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    private static CompletableFuture<String> occupyWorker(CompileScheduler scheduler, CountDownLatch release)
+            throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> future = scheduler.submit(BATCH, () -> {
+            started.countDown();
+            release.await();
+            return "first";
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    @Test
+    public void cancellingQueuedJobFreesItsSlot() throws Exception {
+        scheduler = new CompileScheduler(1, 1, ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = occupyWorker(scheduler, release);
+
+        CompletableFuture<String> cancelled = scheduler.submit(BATCH, () -> "cancelled");
+        assertEquals(1, scheduler.getQueueDepth());
+        assertTrue(cancelled.cancel(false));
+        assertEquals(0, scheduler.getQueueDepth());
+
+        // the slot of the cancelled job takes the next one instead of rejecting it
+        CompletableFuture<String> next = scheduler.submit(INTERACTIVE, () -> "next");
+        assertEquals(1, scheduler.getQueueDepth());
+        assertEquals(0, scheduler.getRejected());
+
+        release.countDown();
+        assertEquals("first", first.get(5, TimeUnit.SECONDS));
+        assertEquals("next", next.get(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(1, scheduler.getCompleted(BATCH));
+        assertEquals(1, scheduler.getCompleted(INTERACTIVE));
+    }
+
+    @Test
+    public void fullQueueRejects() throws Exception {
+        scheduler = new CompileScheduler(1, 1, ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        occupyWorker(scheduler, release);
+        scheduler.submit(BATCH, () -> "queued");
+        try {
+            scheduler.submit(BATCH, () -> "rejected").get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, scheduler.getRejected());
+        release.countDown();
+    }
+
+    @Test
+    public void callerRunsAreCountedApart() throws Exception {
+        scheduler = new CompileScheduler(1, 0, CALLER_RUNS);
+        CompletableFuture<String> future = scheduler.submit(BATCH, () -> Thread.currentThread().getName());
+        assertEquals(Thread.currentThread().getName(), future.get());
+        assertEquals(1, scheduler.getCompleted(BATCH));
+        assertEquals(1, scheduler.getCallerRuns(BATCH));
+        // no queued job finished, so there is no wait to average
+        assertEquals(0, scheduler.getAverageWaitMillis(BATCH), 0);
+    }
+
+    @Test
+    public void callerRunsDoNotDiluteQueueWait() throws Exception {
+        scheduler = new CompileScheduler(1, 1, CALLER_RUNS);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> first = occupyWorker(scheduler, release);
+        CompletableFuture<String> queued = scheduler.submit(INTERACTIVE, () -> "queued");
+        Thread.sleep(50);
+        // queue is full, this one runs right here with no wait
+        assertEquals("caller", scheduler.submit(INTERACTIVE, () -> "caller").get());
+        release.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, scheduler.getCompleted(INTERACTIVE));
+        assertEquals(1, scheduler.getCallerRuns(INTERACTIVE));
+        assertTrue(scheduler.getAverageWaitMillis(INTERACTIVE) >= 50);
+    }
+}
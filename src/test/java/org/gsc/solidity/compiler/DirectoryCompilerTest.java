@@ -0,0 +1,94 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.gsc.solidity.compiler.SolidityCompiler.Options.*;
+import static org.junit.Assert.*;
+
+public class DirectoryCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String name, String source) throws IOException {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, source.getBytes(UTF_8));
+        return path;
+    }
+
+    @Test
+    public void resolvesImportsLikeSolc() {
+        Path solcDirectory = Paths.get("/opt/solc");
+        Path file = Paths.get("/src/contracts/token/Token.sol");
+        assertEquals(Paths.get("/src/contracts/token/Math.sol"),
+                DirectoryCompiler.resolveImport(solcDirectory, file, "./Math.sol"));
+        assertEquals(Paths.get("/src/contracts/lib/Owned.sol"),
+                DirectoryCompiler.resolveImport(solcDirectory, file, "../lib/Owned.sol"));
+        assertEquals(Paths.get("/opt/solc/lib/Owned.sol"),
+                DirectoryCompiler.resolveImport(solcDirectory, file, "lib/Owned.sol"));
+        assertEquals(Paths.get("/abs/Owned.sol"),
+                DirectoryCompiler.resolveImport(solcDirectory, file, "/abs/Owned.sol"));
+    }
+
+    @Test
+    public void groupsByImportGraph() throws IOException {
+        Path a = write("a.sol", "import \"./lib/b.sol\";\ncontract A {}");
+        Path b = write("lib/b.sol", "contract B {}");
+        Path c = write("c.sol", "contract C {}");
+        // not relative, so solc looks for it in its own directory rather than next to d.sol
+        Path d = write("d.sol", "import \"c.sol\";\ncontract D {}");
+
+        List<List<File>> components = DirectoryCompiler.components(Paths.get("/opt/solc"), Arrays.asList(a, b, c, d));
+
+        assertEquals(3, components.size());
+        assertEquals(Arrays.asList(a.toFile(), b.toFile()), components.get(0));
+        assertEquals(Arrays.asList(c.toFile()), components.get(1));
+        assertEquals(Arrays.asList(d.toFile()), components.get(2));
+    }
+
+    @Test
+    public void groupsBySingleQuotedAndSymbolImports() throws IOException {
+        Path a = write("a.sol", "import './lib/b.sol';\ncontract A {}");
+        Path b = write("lib/b.sol", "import {C} from \"../c.sol\";\ncontract B {}");
+        Path c = write("c.sol", "contract C {}");
+        Path d = write("d.sol", "import * as E from './e.sol';\ncontract D {}");
+        Path e = write("e.sol", "contract E {}");
+        Path f = write("f.sol", "// import './a.sol';\ncontract F {}");
+
+        List<List<File>> components = DirectoryCompiler.components(Paths.get("/opt/solc"), Arrays.asList(a, b, c, d, e, f));
+
+        assertEquals(3, components.size());
+        assertEquals(Arrays.asList(a.toFile(), b.toFile(), c.toFile()), components.get(0));
+        assertEquals(Arrays.asList(d.toFile(), e.toFile()), components.get(1));
+        assertEquals(Arrays.asList(f.toFile()), components.get(2));
+    }
+
+    @Test
+    public void compilesIndependentGroups() throws IOException {
+        Path a = write("a.sol", "pragma solidity ^0.4.23;\nimport \"./b.sol\";\ncontract A {}");
+        Path b = write("b.sol", "pragma solidity ^0.4.23;\ncontract B {}");
+        Path c = write("other/c.sol", "pragma solidity ^0.4.23;\ncontract C {}");
+
+        BatchResult batch;
+        try (DirectoryCompiler compiler = new DirectoryCompiler(SolidityCompiler.getInstance())) {
+            batch = compiler.compile(folder.getRoot(), false, ABI, BIN);
+        }
+
+        assertFalse(batch.isFailed());
+        assertNotNull(batch.getResult(a.toString()).getContract("A"));
+        assertNotNull(batch.getResult(b.toString()).getContract("B"));
+        assertNotNull(batch.getResult(c.toString()).getContract("C"));
+    }
+}
@@ -0,0 +1,90 @@
+package org.gsc.solidity.compiler;
+
+import org.gsc.solidity.compiler.CompilerMetrics.Phase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.gsc.solidity.compiler.SolidityCompiler.Options.*;
+import static org.junit.Assert.*;
+
+public class HistogramMetricsTest {
+
+    private static final String OUTPUT = "{\"contracts\":{\"<stdin>:A\":{\"abi\":\"[]\",\"bin\":\"6080\"}},\"version\":\"0.4.25\"}";
+
+    @Test
+    public void percentilesAreBucketUpperBoundsCappedByTheMax() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        for (long nanos = 1; nanos <= 100; nanos++) {
+            metrics.recordTime(Phase.RUN, nanos);
+        }
+        HistogramMetrics.Histogram run = metrics.getTimes(Phase.RUN);
+
+        assertEquals(100, run.getCount());
+        assertEquals(5050, run.getSum());
+        assertEquals(100, run.getMax());
+        assertEquals(50.5, run.getMean(), 0);
+        // 50 falls into [32, 63], 90 and 100 into [64, 127]
+        assertEquals(63, run.getPercentile(50));
+        assertEquals(100, run.getPercentile(90));
+        assertEquals(100, run.getPercentile(100));
+        assertEquals(1, run.getPercentile(1));
+    }
+
+    @Test
+    public void emptyHistogram() {
+        HistogramMetrics.Histogram parse = new HistogramMetrics().getTimes(Phase.PARSE);
+        assertEquals(0, parse.getCount());
+        assertEquals(0, parse.getPercentile(99));
+        assertEquals(0, parse.getMean(), 0);
+    }
+
+    @Test
+    public void countersAndOutputSizes() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        metrics.recordExitCode(0);
+        metrics.recordExitCode(1);
+        metrics.recordExitCode(0);
+        metrics.recordTimeout();
+        metrics.recordOutputSize(1000, 0);
+
+        assertEquals(Long.valueOf(2), metrics.getExitCodes().get(0));
+        assertEquals(Long.valueOf(1), metrics.getExitCodes().get(1));
+        assertEquals(1, metrics.getTimeouts());
+        assertEquals(1000, metrics.getStdoutBytes().getMax());
+        assertEquals(0, metrics.getStderrBytes().getMax());
+    }
+
+    @Test
+    public void compilationRecordsEveryPhase() throws IOException {
+        ScriptSolc solc = ScriptSolc.create("cat > /dev/null\necho '" + OUTPUT + "'");
+        HistogramMetrics metrics = new HistogramMetrics();
+        solc.compiler.setMetrics(metrics);
+
+        CompilationResult result = solc.compiler.compileSrcToResult("contract A {}".getBytes(UTF_8), false, ABI, BIN);
+
+        assertNotNull(result.getContract("A"));
+        for (Phase phase : Phase.values()) {
+            assertEquals(phase.name(), 1, metrics.getTimes(phase).getCount());
+        }
+        assertEquals(Collections.singletonMap(0, 1L), metrics.getExitCodes());
+        assertEquals(OUTPUT.length() + 1, metrics.getStdoutBytes().getMax());
+    }
+
+    @Test
+    public void parseReportsToTheGivenMetricsOnly() throws IOException {
+        HistogramMetrics first = new HistogramMetrics();
+        HistogramMetrics second = new HistogramMetrics();
+        ScriptSolc solc = ScriptSolc.create("cat > /dev/null\necho '" + OUTPUT + "'");
+        solc.compiler.setMetrics(second);
+
+        CompilationResult.parse(OUTPUT, first);
+        CompilationResult.parse(OUTPUT.getBytes(UTF_8), first);
+        CompilationResult.parse(OUTPUT);
+
+        assertEquals(2, first.getTimes(Phase.PARSE).getCount());
+        assertEquals(0, second.getTimes(Phase.PARSE).getCount());
+    }
+}
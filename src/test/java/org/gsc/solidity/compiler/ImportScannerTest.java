@@ -0,0 +1,84 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class ImportScannerTest {
+
+    private static List<String> imports(String source) {
+        List<String> paths = new ArrayList<>();
+        ImportScanner.scan(source, (start, end, pathStart, pathEnd) -> {
+            assertEquals("import", source.substring(start, start + "import".length()));
+            assertEquals(';', source.charAt(end - 1));
+            paths.add(source.substring(pathStart, pathEnd));
+        });
+        return paths;
+    }
+
+    private static boolean selfContained(String source, SolidityCompiler.Option... options) {
+        return SolidityCompiler.isSelfContained(source.getBytes(UTF_8), options);
+    }
+
+    @Test
+    public void plainImport() {
+        assertEquals(Collections.singletonList("./a.sol"), imports("import \"./a.sol\";"));
+        assertEquals(Collections.singletonList("./a.sol"), imports("import './a.sol';"));
+        assertFalse(selfContained("import './a.sol';\ncontract B {}"));
+    }
+
+    @Test
+    public void aliasedImport() {
+        assertEquals(Collections.singletonList("./a.sol"), imports("import \"./a.sol\" as A;"));
+        assertFalse(selfContained("import \"./a.sol\" as A;\ncontract B {}"));
+    }
+
+    @Test
+    public void symbolImport() {
+        assertEquals(Collections.singletonList("./a.sol"), imports("import {A} from \"./a.sol\";"));
+        assertEquals(Collections.singletonList("./a.sol"), imports("import { A, B as C } from './a.sol' ;"));
+        assertEquals(Collections.singletonList("./a.sol"), imports("import A as B from \"./a.sol\";"));
+        assertFalse(selfContained("import {A} from \"./a.sol\";\ncontract B {}"));
+    }
+
+    @Test
+    public void wildcardImport() {
+        assertEquals(Collections.singletonList("./a.sol"), imports("import * as A from \"./a.sol\";"));
+        assertFalse(selfContained("import * as A from \"./a.sol\";\ncontract B {}"));
+    }
+
+    @Test
+    public void importsInCommentsAndStringsAreIgnored() {
+        String source = "// import \"a.sol\";\n/* import {A} from 'b.sol'; */\n"
+                + "contract C { string s = \"import 'c.sol';\"; }\nimport \"d.sol\";";
+        assertEquals(Collections.singletonList("d.sol"), imports(source));
+        assertTrue(selfContained("contract C { string s = \"import * as A from 'a.sol';\"; }"));
+    }
+
+    @Test
+    public void asciiViewFindsTheSameImports() {
+        String source = "import * as A from \"./a.sol\";\n// é\nimport {B} from '../b.sol';";
+        List<String> paths = new ArrayList<>();
+        byte[] bytes = source.getBytes(UTF_8);
+        ImportScanner.scan(ImportScanner.asciiView(ByteBuffer.wrap(bytes)),
+                (start, end, pathStart, pathEnd) -> paths.add(new String(bytes, pathStart, pathEnd - pathStart, UTF_8)));
+        assertEquals(Arrays.asList("./a.sol", "../b.sol"), paths);
+    }
+
+    @Test
+    public void allowedPathsAreNotSelfContained() {
+        String source = "contract C {}";
+        assertTrue(selfContained(source));
+        assertFalse(selfContained(source, new SolidityCompiler.CustomOption("allow-paths", "/tmp")));
+        assertFalse(selfContained(source, new SolidityCompiler.CustomOption("--allow-paths", "/tmp")));
+        assertFalse(selfContained(source,
+                new SolidityCompiler.Options.AllowPaths(Collections.singletonList("/tmp"))));
+    }
+}
@@ -0,0 +1,84 @@
+package org.gsc.solidity.compiler;
+
+import org.gsc.config.SystemProperties;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.gsc.solidity.compiler.SolidityCompiler.Options.*;
+import static org.junit.Assert.*;
+
+public class IncrementalCompilerTest {
+
+    private static class FlakyCompiler extends SolidityCompiler {
+        private boolean failing;
+
+        FlakyCompiler() {
+            super(SystemProperties.getDefault());
+        }
+
+        @Override
+        public CompilationResult compileSrcToResult(byte[] source, boolean optimize, Option... options) throws IOException {
+            if (failing) {
+                throw new IOException("solc crashed");
+            }
+            return super.compileSrcToResult(source, optimize, options);
+        }
+    }
+
+    private static List<SourceArtifact> sources(String base) {
+        return Arrays.asList(
+                new SourceArtifact("base.sol", base),
+                new SourceArtifact("main.sol", "pragma solidity ^0.4.23;\nimport \"base.sol\";\ncontract Main {}"));
+    }
+
+    @Test
+    public void abortedCompileDoesNotReuseStaleResults() throws IOException {
+        FlakyCompiler compiler = new FlakyCompiler();
+        IncrementalCompiler session = new IncrementalCompiler(compiler, false, ABI, BIN);
+
+        IncrementalCompiler.Report first = session.compile(sources("pragma solidity ^0.4.23;\ncontract Base {}"));
+        assertEquals(2, first.getRecompiled().size());
+        assertNotNull(first.getResult("base.sol").getContract("Base"));
+
+        List<SourceArtifact> edited = sources("pragma solidity ^0.4.23;\ncontract Edited {}");
+        compiler.failing = true;
+        try {
+            session.compile(edited);
+            fail();
+        } catch (IOException expected) {
+        }
+
+        compiler.failing = false;
+        IncrementalCompiler.Report retry = session.compile(edited);
+        assertEquals(IncrementalCompiler.Cause.MODIFIED, retry.getRecompiled().get("base.sol").getCause());
+        assertTrue(retry.getRecompiled().containsKey("main.sol"));
+        assertTrue(retry.getReused().isEmpty());
+        assertNotNull(retry.getResult("base.sol").getContract("Edited"));
+        assertEquals(1, retry.getResult("base.sol").getContracts().size());
+
+        IncrementalCompiler.Report unchanged = session.compile(edited);
+        assertTrue(unchanged.getRecompiled().isEmpty());
+        assertEquals(2, unchanged.getReused().size());
+    }
+
+    @Test
+    public void reusedDependentFollowsItsNewImport() throws IOException {
+        IncrementalCompiler session = new IncrementalCompiler(new SolidityCompiler(SystemProperties.getDefault()), false, ABI, BIN);
+        SourceArtifact main = new SourceArtifact("main.sol", "pragma solidity ^0.4.23;\nimport \"base.sol\";\ncontract Main {}");
+
+        IncrementalCompiler.Report first = session.compile(Arrays.asList(
+                new SourceArtifact("base.sol", "pragma solidity ^0.4.23;\ncontract Base {}"), main));
+        assertNotNull(first.getResult("main.sol").getContract("Base"));
+
+        IncrementalCompiler.Report second = session.compile(Arrays.asList(
+                new SourceArtifact("base.sol", "pragma solidity ^0.4.23;\ncontract Edited {}"), main));
+        assertEquals(IncrementalCompiler.Cause.DEPENDENCY_CHANGED, second.getRecompiled().get("main.sol").getCause());
+        CompilationResult result = second.getResult("main.sol");
+        assertEquals(2, result.getContracts().size());
+        assertNotNull(result.getContract("Edited"));
+        assertNotNull(result.getContract("Main"));
+    }
+}
@@ -0,0 +1,102 @@
+package org.gsc.solidity.compiler;
+
+import org.gsc.config.SystemProperties;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stand-in for solc running a shell script, so process handling is tested without the bundled
+ * compiler. The script runs in its own directory, which {@link #dir} gives access to; its
+ * {@code --version} is answered before the script is reached.
+ */
+final class ScriptSolc {
+
+    /**
+     * Script snippet appending the pid of the stub to the {@code pids} file, for {@link #pids()}.
+     */
+    static final String RECORD_PID = "echo $$ >> pids";
+
+    final Path dir;
+    final SystemProperties config;
+    final SolidityCompiler compiler;
+
+    private ScriptSolc(Path dir, SystemProperties config) {
+        this.dir = dir;
+        this.config = config;
+        this.compiler = new SolidityCompiler(config);
+    }
+
+    /**
+     * @param script body of the stub, e.g. {@code "cat > /dev/null; echo '{}'"}
+     * @param keyValuePairs further config overrides, e.g. {@code "solc.pool.size", "2"}
+     */
+    static ScriptSolc create(String script, String... keyValuePairs) throws IOException {
+        Path dir = Files.createTempDirectory("script-solc");
+        dir.toFile().deleteOnExit();
+        Path solc = dir.resolve("solc");
+        Files.write(solc, ("#!/bin/sh\n"
+                + "case \" $* \" in\n"
+                + "    *\" --version \"*) echo 'Version: 0.4.25+commit.59dbf8f1.Linux.g++'; exit 0 ;;\n"
+                + "esac\n"
+                + "cd \"$(dirname \"$0\")\"\n"
+                + script + "\n").getBytes(UTF_8));
+        solc.toFile().setExecutable(true);
+        solc.toFile().deleteOnExit();
+
+        SystemProperties config = new SystemProperties();
+        config.overrideParams("solc.path", solc.toString());
+        if (keyValuePairs.length > 0) {
+            config.overrideParams(keyValuePairs);
+        }
+        return new ScriptSolc(dir, config);
+    }
+
+    /**
+     * @return pids recorded by {@link #RECORD_PID}, in start order
+     */
+    long[] pids() throws IOException {
+        File file = dir.resolve("pids").toFile();
+        if (!file.exists()) {
+            return new long[0];
+        }
+        return Files.readAllLines(file.toPath(), UTF_8).stream().mapToLong(Long::parseLong).toArray();
+    }
+
+    /**
+     * Waits up to {@code timeoutMillis} for the file of the stub to appear.
+     */
+    boolean awaitFile(String name, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!dir.resolve(name).toFile().exists()) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    /**
+     * Waits up to {@code timeoutMillis} for the process to be gone.
+     */
+    static boolean awaitDeath(long pid, long timeoutMillis) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (isAlive(pid)) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    static boolean isAlive(long pid) throws IOException, InterruptedException {
+        return new ProcessBuilder("kill", "-0", Long.toString(pid)).start().waitFor() == 0;
+    }
+}
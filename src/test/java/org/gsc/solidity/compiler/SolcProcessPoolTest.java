@@ -0,0 +1,82 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class SolcProcessPoolTest {
+
+    // every process reports its pid, so a compilation tells which process served it
+    private static final String SCRIPT = ScriptSolc.RECORD_PID + "\ncat > /dev/null\necho \"{\\\"pid\\\": $$}\"";
+
+    private static ScriptSolc pooled() throws IOException {
+        return ScriptSolc.create(SCRIPT, "solc.pool.size", "1", "solc.pool.healthCheck", "100ms");
+    }
+
+    private static long servedBy(ScriptSolc solc) throws IOException {
+        SolidityCompiler.Result result = solc.compiler.compileSrc("contract A {}".getBytes(UTF_8), false, true);
+        assertFalse(result.errors, result.isFailed());
+        return Long.parseLong(result.output.replaceAll("\\D", ""));
+    }
+
+    private static void awaitSpawned(ScriptSolc solc, int count) throws IOException, InterruptedException {
+        for (int i = 0; i < 500 && solc.pids().length < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, solc.pids().length);
+    }
+
+    /**
+     * Compiles once and waits for the standby process spawned meanwhile, which may have started
+     * before or after the process serving the compilation.
+     *
+     * @return pid of the standby process
+     */
+    private static long warmUp(ScriptSolc solc) throws IOException, InterruptedException {
+        long first = servedBy(solc);
+        awaitSpawned(solc, 2);
+        long[] pids = solc.pids();
+        assertTrue(pids[0] == first || pids[1] == first);
+        return pids[0] == first ? pids[1] : pids[0];
+    }
+
+    @Test
+    public void standbyProcessServesTheNextCompilation() throws Exception {
+        ScriptSolc solc = pooled();
+
+        // nothing is warm for a new command line: the first compilation spawns, the pool refills
+        long standby = warmUp(solc);
+        assertEquals(standby, servedBy(solc));
+        awaitSpawned(solc, 3);
+        assertEquals(solc.pids()[2], servedBy(solc));
+    }
+
+    @Test
+    public void deadStandbyProcessIsReplaced() throws Exception {
+        ScriptSolc solc = pooled();
+        long standby = warmUp(solc);
+        assertEquals(0, new ProcessBuilder("kill", "-9", Long.toString(standby)).start().waitFor());
+        assertTrue(ScriptSolc.awaitDeath(standby, 5000));
+
+        // the health check drops the dead process and spawns a replacement
+        awaitSpawned(solc, 3);
+        long replacement = solc.pids()[2];
+        assertEquals(replacement, servedBy(solc));
+    }
+
+    @Test
+    public void runsReadingFromDiskGetAFreshProcess() throws Exception {
+        ScriptSolc solc = pooled();
+        long standby = warmUp(solc);
+
+        SolidityCompiler.Result result = solc.compiler.compileSrc("import \"./b.sol\";\ncontract A {}".getBytes(UTF_8),
+                false, true);
+        long served = Long.parseLong(result.output.replaceAll("\\D", ""));
+        assertEquals(3, solc.pids().length);
+        assertEquals(solc.pids()[2], served);
+        assertTrue(ScriptSolc.isAlive(standby));
+    }
+}
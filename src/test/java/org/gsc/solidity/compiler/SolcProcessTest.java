@@ -0,0 +1,87 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SolcProcessTest {
+
+    private static SolcProcess sleeping() throws IOException {
+        // exec, so that killing the shell leaves nothing holding the pipes
+        return SolcProcess.start(new ProcessBuilder("sh", "-c", "exec sleep 30"));
+    }
+
+    private static Throwable runInterrupted(SolcProcess process, byte[] input) throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                process.run(input);
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        caller.start();
+        Thread.sleep(200);
+        caller.interrupt();
+        caller.join(5000);
+        assertFalse("caller still blocked on solc", caller.isAlive());
+        return failure.get();
+    }
+
+    /**
+     * A killed process is reaped asynchronously.
+     */
+    private static boolean exits(SolcProcess process) throws InterruptedException {
+        for (int i = 0; i < 500 && process.isAlive(); i++) {
+            Thread.sleep(10);
+        }
+        return !process.isAlive();
+    }
+
+    @Test
+    public void timeoutKillsProcess() throws IOException {
+        SolcProcess process = sleeping();
+        long start = System.nanoTime();
+        SolidityCompiler.Result result = process.run(null, 200);
+        assertTrue(result.isTimedOut());
+        assertTrue(result.isFailed());
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 5000);
+        assertFalse(process.isAlive());
+    }
+
+    @Test
+    public void interruptWhileReadingKillsProcess() throws InterruptedException, IOException {
+        SolcProcess process = sleeping();
+        Throwable failure = runInterrupted(process, null);
+        assertTrue(String.valueOf(failure), failure instanceof RuntimeException);
+        assertTrue(String.valueOf(failure), failure.getCause() instanceof InterruptedException);
+        assertTrue(exits(process));
+    }
+
+    @Test
+    public void interruptWhileWritingKillsProcess() throws InterruptedException, IOException {
+        SolcProcess process = sleeping();
+        // far more than a pipe buffer, never read by sleep
+        Throwable failure = runInterrupted(process, new byte[4 * 1024 * 1024]);
+        assertTrue(String.valueOf(failure), failure instanceof RuntimeException);
+        assertTrue(String.valueOf(failure), failure.getCause() instanceof InterruptedException);
+        assertTrue(exits(process));
+    }
+
+    @Test
+    public void cancelledAsyncCompilationKillsProcess() throws Exception {
+        ScriptSolc solc = ScriptSolc.create(ScriptSolc.RECORD_PID + "\ncat > /dev/null\nexec sleep 30");
+        CompletableFuture<SolidityCompiler.Result> future =
+                solc.compiler.compileAsync("contract A {}".getBytes(), false, true);
+        assertTrue(solc.awaitFile("pids", 5000));
+        long pid = solc.pids()[0];
+        assertTrue(ScriptSolc.isAlive(pid));
+
+        assertTrue(future.cancel(true));
+        assertTrue(ScriptSolc.awaitDeath(pid, 5000));
+    }
+}
@@ -0,0 +1,106 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.*;
+
+public class SolcRegistryTest {
+
+    private static boolean satisfies(String version, String constraint) {
+        return SolcRegistry.satisfies(SolcRegistry.parseVersion(version), constraint);
+    }
+
+    @Test
+    public void caretAndTilde() {
+        assertTrue(satisfies("0.4.25", "^0.4.24"));
+        assertFalse(satisfies("0.4.23", "^0.4.24"));
+        assertFalse(satisfies("0.5.0", "^0.4.24"));
+        assertTrue(satisfies("1.3.0", "^1.2.3"));
+        assertFalse(satisfies("2.0.0", "^1.2.3"));
+        assertTrue(satisfies("0.4.25", "~0.4.24"));
+        assertFalse(satisfies("0.5.1", "~0.4.24"));
+    }
+
+    @Test
+    public void rangesWithOrWithoutSpaceAfterOperator() {
+        assertTrue(satisfies("0.4.25", ">=0.4.22 <0.6.0"));
+        assertTrue(satisfies("0.4.25", ">= 0.4.22 < 0.6.0"));
+        assertTrue(satisfies("0.4.22", ">= 0.4.22 <0.6.0"));
+        assertFalse(satisfies("0.4.21", ">= 0.4.22 < 0.6.0"));
+        assertFalse(satisfies("0.6.0", ">= 0.4.22 < 0.6.0"));
+        assertTrue(satisfies("0.4.24", "> 0.4.23 <= 0.4.24"));
+    }
+
+    @Test
+    public void exactVersionsAndAlternatives() {
+        assertTrue(satisfies("0.4.24", "0.4.24"));
+        assertTrue(satisfies("0.4.24", "=0.4.24"));
+        assertTrue(satisfies("0.4.24", "v0.4.24"));
+        assertFalse(satisfies("0.4.25", "0.4.24"));
+        assertTrue(satisfies("0.4.25", "0.4.23 || ^0.4.25"));
+        assertFalse(satisfies("0.4.24", "0.4.23 || ^0.4.25"));
+    }
+
+    @Test(expected = ContractException.class)
+    public void rejectsUnknownComparator() {
+        satisfies("0.4.24", "!=0.4.24");
+    }
+
+    @Test
+    public void pragmaInCommentsIsIgnored() {
+        String source = "// pragma solidity ^0.5.0;\n"
+                + "/* pragma solidity ^0.6.0;\n */\n"
+                + "pragma solidity >= 0.4.22 < 0.6.0;\n"
+                + "contract A { string s = \"// not a comment\"; }";
+        assertEquals(">= 0.4.22 < 0.6.0", SolcRegistry.pragmaConstraint(source));
+        assertNull(SolcRegistry.pragmaConstraint("// pragma solidity ^0.4.24;\ncontract A {}"));
+    }
+
+    @Test
+    public void asyncCompilationsKeepToTheVersionLimit() throws Exception {
+        ScriptSolc solc = ScriptSolc.create("echo start >> log\ncat > /dev/null\nsleep 0.2\necho end >> log\necho '{}'",
+                "solc.versionMaxConcurrent", "2", "solc.async.threads", "6");
+        SolcRegistry registry = new SolcRegistry(solc.config);
+
+        List<CompletableFuture<SolidityCompiler.Result>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(registry.compileAsync(("contract C" + i + " {}").getBytes(UTF_8), false, true));
+        }
+        for (CompletableFuture<SolidityCompiler.Result> future : futures) {
+            assertFalse(future.get(10, TimeUnit.SECONDS).isFailed());
+        }
+
+        int running = 0;
+        int maxRunning = 0;
+        List<String> log = Files.readAllLines(solc.dir.resolve("log"), UTF_8);
+        for (String line : log) {
+            running += "start".equals(line) ? 1 : -1;
+            maxRunning = Math.max(maxRunning, running);
+        }
+        assertEquals(12, log.size());
+        assertEquals(2, maxRunning);
+    }
+
+    @Test
+    public void cancelledAsyncCompilationFreesItsSlot() throws Exception {
+        ScriptSolc solc = ScriptSolc.create("cat > /dev/null\nif [ ! -f slow ]; then touch slow; exec sleep 30; fi\necho '{}'",
+                "solc.versionMaxConcurrent", "1", "solc.async.threads", "2");
+        SolcRegistry registry = new SolcRegistry(solc.config);
+
+        CompletableFuture<SolidityCompiler.Result> slow = registry.compileAsync("contract A {}".getBytes(UTF_8), false, true);
+        assertTrue(solc.awaitFile("slow", 5000));
+        CompletableFuture<SolidityCompiler.Result> queued = registry.compileAsync("contract B {}".getBytes(UTF_8), false, true);
+        Thread.sleep(200);
+        assertFalse(queued.isDone());
+
+        slow.cancel(true);
+        assertFalse(queued.get(10, TimeUnit.SECONDS).isFailed());
+    }
+}
@@ -0,0 +1,43 @@
+package org.gsc.solidity.compiler;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StandardJsonTest {
+
+    @Test
+    public void importsOfEveryFormAreResolvedAgainstTheImporter() {
+        String source = "import \"./a.sol\";\n"
+                + "import '../b.sol' as B;\n"
+                + "import {C} from \"lib/c.sol\";\n"
+                + "import * as D from './d.sol';\n";
+        assertEquals(new LinkedHashSet<>(Arrays.asList("src/a.sol", "b.sol", "lib/c.sol", "src/d.sol")),
+                StandardJson.imports("src/main.sol", source));
+    }
+
+    @Test
+    public void importsInCommentsAndStringsDontCount() {
+        String source = "// import \"a.sol\";\n/* import {B} from 'b.sol'; */\n"
+                + "contract C { string s = \"import 'c.sol';\"; }";
+        assertEquals(Collections.emptySet(), StandardJson.imports("main.sol", source));
+    }
+
+    @Test
+    public void closedOnlyWhenEveryImportIsPresent() {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("main.sol", "import {A} from './a.sol';\ncontract Main {}");
+        assertFalse(StandardJson.isClosed(sources));
+
+        Map<String, String> available = Collections.singletonMap("a.sol", "contract A {}");
+        StandardJson.addImports(sources, available);
+        assertEquals(available.get("a.sol"), sources.get("a.sol"));
+        assertTrue(StandardJson.isClosed(sources));
+    }
+}